@@ -0,0 +1,93 @@
+package shell.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import shell.Cat;
+import shell.ChannelOutputStream;
+import shell.Command;
+import shell.Environment;
+import shell.Parser;
+import shell.Redirections;
+
+/**
+ * The cat builtin over a multi-gigabyte file: into a redirect file and /dev/null, where
+ * the kernel moves the bytes, and into a plain channel, where they go through the copy buffer.
+ * The input is a sparse file, so setting it up does not write gigabytes to disk.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CatBenchmark {
+    @Param({"2147483648"})
+    public long size;
+
+    @Param({"file", "devnull", "channel"})
+    public String target;
+
+    private static final List<String> ARGUMENTS = List.of("cat", "input.bin");
+
+    private Path directory;
+    private Cat cat;
+    private PrintStream err;
+    private Command redirect;
+
+    @Setup
+    public void setUp() throws IOException, Parser.SyntaxError {
+        directory = Files.createTempDirectory("shell-bench-cat");
+        try (RandomAccessFile input = new RandomAccessFile(directory.resolve("input.bin").toFile(), "rw")) {
+            input.setLength(size);
+        }
+        cat = new Cat(() -> directory, (arguments, in, out, stderr) -> {
+            throw new IllegalStateException("fell back to the real cat");
+        });
+        err = new PrintStream(OutputStream.nullOutputStream());
+        String line = target.equals("file") ? "cat input.bin > copy.bin" : "cat input.bin > /dev/null";
+        redirect = new Parser(new Environment()).parse(line).get(0);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(directory.resolve("input.bin"));
+        Files.deleteIfExists(directory.resolve("copy.bin"));
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public int cat() throws IOException {
+        if (target.equals("channel")) {
+            try (OutputStream out = new ChannelOutputStream(
+                    Channels.newChannel(OutputStream.nullOutputStream()), true, 8 * 1024)) {
+                return cat.run(ARGUMENTS, InputStream.nullInputStream(), out, err);
+            }
+        }
+
+        try (Redirections streams = Redirections.of(redirect, directory).open()) {
+            return cat.run(ARGUMENTS, InputStream.nullInputStream(), streams.out(), err);
+        }
+    }
+}
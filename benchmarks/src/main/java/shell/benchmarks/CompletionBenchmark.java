@@ -0,0 +1,93 @@
+package shell.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import shell.Completer;
+import shell.Environment;
+import shell.PathCompleter;
+import shell.PathIndex;
+
+/**
+ * Tab completion against a PATH with tens of thousands of executables: the cold PATH scan,
+ * a warm prefix lookup, the full candidate list and the common prefix of the candidates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompletionBenchmark {
+    @Param({"20000", "50000"})
+    public int executables;
+
+    // one and two characters typed before Tab
+    @Param({"g", "py"})
+    public String prefix;
+
+    private SyntheticPath syntheticPath;
+    private Environment environment;
+    private PathIndex pathIndex;
+    private Completer completer;
+    private List<String> candidates;
+    private Path directory;
+
+    @Setup
+    public void setUp() throws IOException {
+        syntheticPath = SyntheticPath.create(executables, 8);
+        environment = new Environment();
+        environment.set("PATH", syntheticPath.path);
+        pathIndex = new PathIndex(environment);
+        Set<String> builtins = new HashSet<>(List.of("echo", "exit", "type", "pwd", "cd", "cat"));
+        completer = new Completer(builtins, pathIndex, new PathCompleter(environment));
+        directory = syntheticPath.root;
+        candidates = completer.complete(prefix, true, directory);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        syntheticPath.delete();
+    }
+
+    /**
+     * First lookup in a fresh shell, reading every PATH directory
+     */
+    @Benchmark
+    public File coldScan() {
+        return new PathIndex(environment).lookup("git-0");
+    }
+
+    @Benchmark
+    public List<String> indexPrefix() {
+        return pathIndex.complete(prefix);
+    }
+
+    @Benchmark
+    public List<String> candidates() {
+        return completer.complete(prefix, true, directory);
+    }
+
+    @Benchmark
+    public String longestCommonPrefix() {
+        return Completer.longestCommonPrefix(candidates);
+    }
+}
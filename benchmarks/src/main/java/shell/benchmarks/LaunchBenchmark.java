@@ -0,0 +1,75 @@
+package shell.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import shell.CommandHash;
+import shell.Environment;
+import shell.Launcher;
+import shell.PathIndex;
+
+/**
+ * Starting an external command the way the shell does: hash lookup, argv, working
+ * directory and environment, then fork/exec and wait. The synthetic PATH entries come
+ * before the system directories, so resolution has a large index to search.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LaunchBenchmark {
+    @Param({"20000"})
+    public int executables;
+
+    private SyntheticPath syntheticPath;
+    private Launcher launcher;
+    private Path directory;
+
+    @Setup
+    public void setUp() throws IOException {
+        syntheticPath = SyntheticPath.create(executables, 8);
+        Environment environment = Environment.fromSystem();
+        environment.set("PATH", syntheticPath.path + File.pathSeparator + environment.get("PATH"));
+        launcher = new Launcher(new CommandHash(environment, new PathIndex(environment)), environment);
+        directory = syntheticPath.root;
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        syntheticPath.delete();
+    }
+
+    /**
+     * Resolving and preparing the child without starting it
+     */
+    @Benchmark
+    public ProcessBuilder prepare() {
+        List<String> arguments = new ArrayList<>(List.of("true"));
+        return launcher.builder(arguments, directory);
+    }
+
+    @Benchmark
+    public int launch() throws IOException, InterruptedException {
+        List<String> arguments = new ArrayList<>(List.of("true"));
+        return launcher.builder(arguments, directory).start().waitFor();
+    }
+}
@@ -0,0 +1,52 @@
+package shell.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import shell.Command;
+import shell.Environment;
+import shell.Parser;
+
+/**
+ * Turning a typed line into commands: lexing, quoting, expansion and redirections.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParserBenchmark {
+    @Param({
+        "ls -la",
+        "echo 'single quoted' \"double $HOME\" back\\ slash > out.txt 2>&1",
+        "cat access.log | grep -v healthz | cut -d' ' -f1 | sort | uniq -c | sort -rn | head -20 &"
+    })
+    public String line;
+
+    private Parser parser;
+
+    @Setup
+    public void setUp() {
+        Environment environment = new Environment();
+        environment.set("HOME", "/home/user");
+        parser = new Parser(environment);
+    }
+
+    @Benchmark
+    public List<Command> parse() throws Parser.SyntaxError {
+        return parser.parse(line);
+    }
+}
@@ -0,0 +1,72 @@
+package shell.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import shell.Command;
+import shell.Environment;
+import shell.Parser;
+import shell.Redirections;
+
+/**
+ * A builtin writing echo-sized lines through its redirected streams: opening the
+ * targets, the buffered writes and the flush on close.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RedirectionBenchmark {
+    @Param({"echo line > out.txt", "echo line &> out.txt", "echo line > out.txt 2> err.txt"})
+    public String line;
+
+    @Param({"1", "1000"})
+    public int writes;
+
+    private static final byte[] LINE = "the quick brown fox jumps over the lazy dog\n".getBytes(StandardCharsets.UTF_8);
+
+    private Path directory;
+    private Command command;
+
+    @Setup
+    public void setUp() throws IOException, Parser.SyntaxError {
+        directory = Files.createTempDirectory("shell-bench-redirect");
+        command = new Parser(new Environment()).parse(line).get(0);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(directory.resolve("out.txt"));
+        Files.deleteIfExists(directory.resolve("err.txt"));
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public void write() throws IOException {
+        try (Redirections streams = Redirections.of(command, directory).open()) {
+            OutputStream out = streams.out();
+            for (int i = 0; i < writes; i++) {
+                out.write(LINE);
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package shell.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import shell.Builtin;
+import shell.ChannelOutputStream;
+import shell.Grep;
+import shell.Head;
+import shell.Wc;
+
+/**
+ * The byte-scanning builtins over a text file of log-like lines: counting lines alone,
+ * the full wc count, head stopping early and grep looking for a rare word.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScanBenchmark {
+    @Param({"67108864"})
+    public long size;
+
+    @Param({"wc -l", "wc", "head -n 100", "grep -c needle"})
+    public String command;
+
+    private static final String[] WORDS = {"GET", "POST", "/index.html", "200", "404", "user", "session", "ok"};
+
+    private Path directory;
+    private Builtin builtin;
+    private List<String> arguments;
+    private PrintStream err;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("shell-bench-scan");
+        Random random = new Random(42);
+        try (BufferedWriter writer = Files.newBufferedWriter(directory.resolve("input.log"))) {
+            long written = 0;
+            while (written < size) {
+                StringBuilder line = new StringBuilder();
+                int words = 4 + random.nextInt(8);
+                for (int i = 0; i < words; i++) {
+                    line.append(random.nextInt(10000) == 0 ? "needle" : WORDS[random.nextInt(WORDS.length)]).append(' ');
+                }
+                line.setCharAt(line.length() - 1, '\n');
+                writer.write(line.toString());
+                written += line.length();
+            }
+        }
+
+        Builtin unsupported = (arguments, in, out, err) -> {
+            throw new IllegalStateException("fell back to the real " + arguments.get(0));
+        };
+        String[] words = (command + " input.log").split(" ");
+        arguments = List.of(words);
+        switch (words[0]) {
+            case "wc":
+                builtin = new Wc(() -> directory, unsupported);
+                break;
+            case "head":
+                builtin = new Head(() -> directory, unsupported);
+                break;
+            default:
+                builtin = new Grep(() -> directory, unsupported);
+                break;
+        }
+        err = new PrintStream(OutputStream.nullOutputStream());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(directory.resolve("input.log"));
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public int scan() throws IOException {
+        try (OutputStream out = new ChannelOutputStream(
+                Channels.newChannel(OutputStream.nullOutputStream()), true, 8 * 1024)) {
+            return builtin.run(arguments, InputStream.nullInputStream(), out, err);
+        }
+    }
+}
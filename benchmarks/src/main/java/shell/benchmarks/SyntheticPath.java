@@ -0,0 +1,51 @@
+package shell.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * A temporary PATH made of several directories holding many empty executables, with
+ * names spread over the alphabet the way a large /usr/bin is.
+ */
+final class SyntheticPath {
+    private static final String[] STEMS = {"git", "gcc", "py", "perl", "x", "k", "lib", "apt", "cmake", "node"};
+
+    final Path root;
+    final String path;
+
+    private SyntheticPath(Path root, String path) {
+        this.root = root;
+        this.path = path;
+    }
+
+    static SyntheticPath create(int executables, int directories) throws IOException {
+        Path root = Files.createTempDirectory("shell-bench-path");
+        Random random = new Random(42);
+        List<String> dirs = new ArrayList<>();
+        for (int d = 0; d < directories; d++) {
+            Path dir = Files.createDirectory(root.resolve("bin" + d));
+            dirs.add(dir.toString());
+        }
+        for (int i = 0; i < executables; i++) {
+            String name = STEMS[random.nextInt(STEMS.length)] + "-" + Integer.toString(i, 36);
+            Path file = Files.createFile(Path.of(dirs.get(i % directories), name));
+            Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rwxr-xr-x"));
+        }
+        return new SyntheticPath(root, String.join(":", dirs));
+    }
+
+    void delete() throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+}
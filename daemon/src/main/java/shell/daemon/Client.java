@@ -0,0 +1,106 @@
+package shell.daemon;
+
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import shell.Chunks;
+import shell.TerminalMode;
+
+/**
+ * The client of the shell daemon: takes the place of java-shell, with the same arguments,
+ * but runs the session in the daemon. It sends its environment and working directory,
+ * then forwards its terminal until the session reports an exit status.
+ *
+ * <pre>java -jar java-shell-daemon.jar [script]</pre>
+ */
+public class Client {
+    private static final int INPUT_BUFFER_SIZE = 8 * 1024;
+
+    public static void main(String[] args) throws Exception {
+        Path socketPath = Frame.socketPath();
+        SocketChannel socket;
+        try {
+            socket = SocketChannel.open(UnixDomainSocketAddress.of(socketPath));
+        } catch (IOException e) {
+            System.err.println("java-shell: no daemon on " + socketPath + ": " + Chunks.reason(e));
+            System.exit(2);
+            return;
+        }
+
+        // the client's terminal is the session's: raw mode here, line editing in the daemon
+        TerminalMode terminal = TerminalMode.detect();
+        boolean interactive = args.length == 0 && terminal.isInteractive();
+        String script = args.length > 0 ? Paths.get(args[0]).toAbsolutePath().toString() : null;
+        Hello hello = new Hello(interactive, interactive ? terminal.columns() : 0,
+                Paths.get("").toAbsolutePath().toString(), script, System.getenv());
+        FrameWriter writer = new FrameWriter(socket);
+        writer.write(Frame.HELLO, hello.encode());
+
+        if (interactive) {
+            terminal.enterRawMode();
+        }
+        int status;
+        try {
+            Thread input = new Thread(() -> forwardInput(writer), "forward-stdin");
+            input.setDaemon(true);
+            input.start();
+            status = forwardOutput(socket);
+        } finally {
+            terminal.restore();
+        }
+        System.exit(status);
+    }
+
+    /**
+     * Send stdin as it arrives, ending with INPUT_END
+     */
+    private static void forwardInput(FrameWriter writer) {
+        FileChannel stdin = new FileInputStream(FileDescriptor.in).getChannel();
+        ByteBuffer buffer = ByteBuffer.allocate(INPUT_BUFFER_SIZE);
+        try {
+            while (stdin.read(buffer.clear()) >= 0) {
+                writer.write(Frame.INPUT, buffer.flip());
+            }
+            writer.write(Frame.INPUT_END, buffer.clear().flip());
+        } catch (IOException e) {
+            // the session ended, or stdin was closed under us
+        }
+    }
+
+    /**
+     * Copy the session's output frames to stdout and stderr and return its exit status
+     */
+    private static int forwardOutput(SocketChannel socket) throws IOException {
+        FileChannel stdout = new FileOutputStream(FileDescriptor.out).getChannel();
+        FileChannel stderr = new FileOutputStream(FileDescriptor.err).getChannel();
+        Frame frame;
+        while ((frame = Frame.read(socket)) != null) {
+            switch (frame.type()) {
+                case Frame.OUTPUT -> writeFully(stdout, frame.payload());
+                case Frame.ERROR -> writeFully(stderr, frame.payload());
+                case Frame.EXIT -> {
+                    return frame.payload().getInt();
+                }
+                default -> {
+                    // newer daemons may send more; an older client ignores it
+                }
+            }
+        }
+        System.err.println("java-shell: the daemon closed the session");
+        return 1;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package shell.daemon;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * One message between client and daemon: a type byte, a four byte big-endian payload
+ * length and the payload. The client sends HELLO and then its stdin; the daemon answers
+ * with the session's stdout and stderr and finally its exit status.
+ */
+public record Frame(byte type, ByteBuffer payload) {
+    // client to daemon
+    public static final byte HELLO = 1;
+    public static final byte INPUT = 2;
+    public static final byte INPUT_END = 3;
+
+    // daemon to client
+    public static final byte OUTPUT = 4;
+    public static final byte ERROR = 5;
+    public static final byte EXIT = 6;
+
+    // largest payload sent or accepted, so a bad length cannot make a reader allocate gigabytes
+    public static final int MAX_PAYLOAD = 1 << 20;
+    static final int HEADER_SIZE = 5;
+
+    /**
+     * The socket both sides use unless told otherwise: JAVA_SHELL_SOCKET, else a per-user
+     * file in XDG_RUNTIME_DIR or /tmp
+     */
+    public static Path socketPath() {
+        String socket = System.getenv("JAVA_SHELL_SOCKET");
+        if (socket != null && !socket.isEmpty()) {
+            return Paths.get(socket);
+        }
+        String runtime = System.getenv("XDG_RUNTIME_DIR");
+        if (runtime != null && !runtime.isEmpty()) {
+            return Paths.get(runtime, "java-shell.sock");
+        }
+        return Paths.get("/tmp", "java-shell-" + System.getProperty("user.name") + ".sock");
+    }
+
+    /**
+     * Read the next frame, or return null once the other side has closed the connection
+     */
+    public static Frame read(ReadableByteChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        if (!readFully(channel, header)) {
+            return null;
+        }
+        byte type = header.get(0);
+        int length = header.getInt(1);
+        if (length < 0 || length > MAX_PAYLOAD) {
+            throw new IOException("bad frame length " + length);
+        }
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        if (!readFully(channel, payload)) {
+            throw new IOException("connection closed inside a frame");
+        }
+        return new Frame(type, payload.flip());
+    }
+
+    private static boolean readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                // a clean end only between frames
+                if (buffer.position() == 0) {
+                    return false;
+                }
+                throw new IOException("connection closed inside a frame");
+            }
+        }
+        return true;
+    }
+}
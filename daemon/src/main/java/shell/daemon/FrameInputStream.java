@@ -0,0 +1,62 @@
+package shell.daemon;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * A session's stdin: the payloads of the client's INPUT frames, read from the connection
+ * only when the shell asks for more. INPUT_END or a closed connection is end of input.
+ */
+public class FrameInputStream extends InputStream {
+    private final ReadableByteChannel channel;
+    private ByteBuffer payload = ByteBuffer.allocate(0);
+    private boolean ended;
+
+    public FrameInputStream(ReadableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return fill() ? payload.get() & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int n = Math.min(len, payload.remaining());
+        payload.get(b, off, n);
+        return n;
+    }
+
+    /**
+     * Bytes of the current frame not read yet, so the line editor can tell a pasted
+     * line from a single key
+     */
+    @Override
+    public int available() {
+        return payload.remaining();
+    }
+
+    private boolean fill() throws IOException {
+        while (!payload.hasRemaining()) {
+            if (ended) {
+                return false;
+            }
+            Frame frame = Frame.read(channel);
+            if (frame == null || frame.type() == Frame.INPUT_END) {
+                ended = true;
+            } else if (frame.type() == Frame.INPUT) {
+                payload = frame.payload();
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,67 @@
+package shell.daemon;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Sends frames on a connection that several threads write to: the shell, the threads of
+ * a pipeline and the relays of its children. Each frame goes out whole under a lock, header
+ * and payload in one gathering write. A lock rather than synchronized, so a virtual thread
+ * blocked on a slow client does not pin its carrier.
+ */
+public class FrameWriter {
+    private final GatheringByteChannel channel;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public FrameWriter(GatheringByteChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Send a payload as frames of at most Frame.MAX_PAYLOAD bytes
+     */
+    public void write(byte type, ByteBuffer payload) throws IOException {
+        do {
+            ByteBuffer slice = payload.slice();
+            slice.limit(Math.min(slice.remaining(), Frame.MAX_PAYLOAD));
+            payload.position(payload.position() + slice.remaining());
+            ByteBuffer header = ByteBuffer.allocate(Frame.HEADER_SIZE).put(type).putInt(slice.remaining()).flip();
+            ByteBuffer[] frame = {header, slice};
+            lock.lock();
+            try {
+                while (header.hasRemaining() || slice.hasRemaining()) {
+                    channel.write(frame);
+                }
+            } finally {
+                lock.unlock();
+            }
+        } while (payload.hasRemaining());
+    }
+
+    /**
+     * A channel that sends everything written to it as frames of one type
+     */
+    public WritableByteChannel channel(byte type) {
+        return new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer source) throws IOException {
+                int length = source.remaining();
+                FrameWriter.this.write(type, source);
+                return length;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return channel.isOpen();
+            }
+
+            @Override
+            public void close() {
+                // the connection outlives every stream of the session
+            }
+        };
+    }
+}
@@ -0,0 +1,59 @@
+package shell.daemon;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The first frame of a session: what the client's shell would have started with. A null
+ * script reads commands from the client's stdin, with the line editor when it is a terminal.
+ */
+public record Hello(boolean interactive, int columns, String directory, String script,
+        Map<String, String> environment) {
+
+    public ByteBuffer encode() {
+        int size = 1 + 4 + 4;
+        byte[][] strings = new byte[2 + 2 * environment.size()][];
+        strings[0] = bytes(directory);
+        strings[1] = bytes(script == null ? "" : script);
+        int next = 2;
+        for (Map.Entry<String, String> variable : environment.entrySet()) {
+            strings[next++] = bytes(variable.getKey());
+            strings[next++] = bytes(variable.getValue());
+        }
+        for (byte[] string : strings) {
+            size += 4 + string.length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put((byte) (interactive ? 1 : 0)).putInt(columns).putInt(environment.size());
+        for (byte[] string : strings) {
+            buffer.putInt(string.length).put(string);
+        }
+        return buffer.flip();
+    }
+
+    public static Hello decode(ByteBuffer buffer) {
+        boolean interactive = buffer.get() != 0;
+        int columns = buffer.getInt();
+        int variables = buffer.getInt();
+        String directory = string(buffer);
+        String script = string(buffer);
+        Map<String, String> environment = new LinkedHashMap<>();
+        for (int i = 0; i < variables; i++) {
+            environment.put(string(buffer), string(buffer));
+        }
+        return new Hello(interactive, columns, directory, script.isEmpty() ? null : script, environment);
+    }
+
+    private static byte[] bytes(String string) {
+        return string.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,126 @@
+package shell.daemon;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import shell.Chunks;
+import shell.Console;
+import shell.Environment;
+import shell.PathIndex;
+import shell.Shell;
+import shell.TerminalMode;
+
+/**
+ * The shell daemon: one JVM, warmed up once, serving every client session on a virtual
+ * thread of its own over a Unix domain socket. A session pays for neither JVM startup nor
+ * class loading nor the first PATH scan.
+ *
+ * <pre>java -cp java-shell-daemon.jar shell.daemon.Server [socket]</pre>
+ */
+public class Server {
+    // runs through the parser, pipelines, builtins and a child before the first client comes
+    private static final String WARM_UP = "cd /; pwd; type ls; echo warm | wc -l; echo warm | grep -c w\n"
+            + "head -n 1 <<< warm; true && ls -1 > /dev/null; true | cat; hash\n";
+
+    public static void main(String[] args) throws Exception {
+        Path socketPath = args.length > 0 ? Paths.get(args[0]) : Frame.socketPath();
+        Environment environment = Environment.fromSystem();
+        PathIndex warmIndex = new PathIndex(environment);
+        // the first lookup scans PATH; sessions with the same PATH start from this scan
+        warmIndex.lookup("sh");
+        warmUp(warmIndex);
+
+        try (ServerSocketChannel server = bind(socketPath);
+                ExecutorService sessions = Executors.newVirtualThreadPerTaskExecutor()) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> delete(socketPath), "socket-delete"));
+            System.err.println("java-shell-daemon: listening on " + socketPath);
+            while (true) {
+                SocketChannel client = server.accept();
+                sessions.execute(new Session(client, warmIndex));
+            }
+        } catch (IOException e) {
+            System.err.println("java-shell-daemon: " + socketPath + ": " + Chunks.reason(e));
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Listen on the socket, replacing a stale file left by a daemon that died, but not a live one
+     */
+    private static ServerSocketChannel bind(Path socketPath) throws IOException {
+        UnixDomainSocketAddress address = UnixDomainSocketAddress.of(socketPath);
+        if (Files.exists(socketPath)) {
+            if (isListening(address)) {
+                throw new IOException("a daemon is already listening");
+            }
+            Files.delete(socketPath);
+        }
+        // whoever can connect runs commands as this user, so the socket is bound in a private
+        // directory, made owner-only there and only then moved to where clients look for it
+        Path parent = socketPath.toAbsolutePath().getParent();
+        Path privateDirectory = Files.createTempDirectory(parent, ".java-shell-",
+                PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+        Path boundPath = privateDirectory.resolve("socket");
+        ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            server.bind(UnixDomainSocketAddress.of(boundPath));
+            Files.setPosixFilePermissions(boundPath, PosixFilePermissions.fromString("rw-------"));
+            Files.move(boundPath, socketPath, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            server.close();
+            Files.deleteIfExists(boundPath);
+            throw e;
+        } finally {
+            Files.deleteIfExists(privateDirectory);
+        }
+        return server;
+    }
+
+    private static boolean isListening(UnixDomainSocketAddress address) {
+        try {
+            SocketChannel.open(address).close();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Run a short script through a shell that writes nowhere, so the classes and JIT
+     * profiles the first real session needs are already in place
+     */
+    private static void warmUp(PathIndex warmIndex) {
+        WritableByteChannel discard = Channels.newChannel(OutputStream.nullOutputStream());
+        Console console = Console.forwarded(new ByteArrayInputStream(WARM_UP.getBytes(StandardCharsets.UTF_8)),
+                discard, discard, TerminalMode.forwarded(false, 0));
+        Environment environment = Environment.fromSystem();
+        try {
+            new Shell(console, environment, new PathIndex(environment, warmIndex), Paths.get("/")).run(null);
+        } catch (Exception e) {
+            System.err.println("java-shell-daemon: warm-up failed: " + e);
+        }
+    }
+
+    private static void delete(Path socketPath) {
+        try {
+            Files.deleteIfExists(socketPath);
+        } catch (IOException e) {
+            // left for the next daemon to replace
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package shell.daemon;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Paths;
+
+import shell.Console;
+import shell.Environment;
+import shell.PathIndex;
+import shell.Shell;
+import shell.TerminalMode;
+
+/**
+ * One client connection: a shell with the client's working directory and environment,
+ * reading the client's stdin and writing frames back, run to its exit status.
+ */
+public class Session implements Runnable {
+    private final SocketChannel socket;
+    private final PathIndex warmIndex;
+
+    /**
+     * @param warmIndex the daemon's PATH scan, which the session's index starts from
+     */
+    public Session(SocketChannel socket, PathIndex warmIndex) {
+        this.socket = socket;
+        this.warmIndex = warmIndex;
+    }
+
+    @Override
+    public void run() {
+        try (socket) {
+            Frame first = Frame.read(socket);
+            if (first == null || first.type() != Frame.HELLO) {
+                return;
+            }
+            Hello hello = Hello.decode(first.payload());
+            FrameWriter writer = new FrameWriter(socket);
+            Console console = Console.forwarded(new FrameInputStream(socket), writer.channel(Frame.OUTPUT),
+                    writer.channel(Frame.ERROR), TerminalMode.forwarded(hello.interactive(), hello.columns()));
+
+            Environment environment = Environment.of(hello.environment());
+            Shell shell = new Shell(console, environment, new PathIndex(environment, warmIndex),
+                    Paths.get(hello.directory()));
+            int status;
+            try {
+                status = shell.run(hello.script());
+            } finally {
+                shell.flush();
+            }
+            console.out().flush();
+            console.err().flush();
+            writer.write(Frame.EXIT, ByteBuffer.allocate(4).putInt(0, status));
+        } catch (IOException e) {
+            // the client went away, e.g. interrupted with Ctrl-C
+        } catch (Exception e) {
+            System.err.println("java-shell-daemon: session failed: " + e);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package shell;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * A command implemented inside the shell
+ */
+@FunctionalInterface
+public interface Builtin {
+    /**
+     * Run the command with its full argument list (the command name first) and return its exit status
+     */
+    int run(List<String> arguments, InputStream in, OutputStream out, PrintStream err) throws IOException;
+}
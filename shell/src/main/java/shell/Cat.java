@@ -0,0 +1,123 @@
+package shell;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * The cat builtin. Files are streamed as they are reached, never decoded or collected:
+ * into a redirect file the kernel moves the bytes with transferTo, onto the terminal
+ * they go through one reused direct buffer per thread.
+ */
+public class Cat implements Builtin {
+    // buffer reused by every byte copy on a thread
+    private static final ThreadLocal<ByteBuffer> copyBuffer =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(64 * 1024));
+
+    private final Supplier<Path> directory;
+    private final Builtin fallback;
+
+    public Cat(Supplier<Path> directory, Builtin fallback) {
+        this.directory = directory;
+        this.fallback = fallback;
+    }
+
+    @Override
+    public int run(List<String> arguments, InputStream in, OutputStream out, PrintStream err) throws IOException {
+        // without file arguments cat copies its input, a `<` file as a file
+        if (arguments.size() == 1) {
+            // the shell's own stdin can only be handed to a child, so the real cat reads it
+            if (InputSource.isUnredirected(in)) {
+                return fallback.run(arguments, in, out, err);
+            }
+            if (in instanceof ChannelInputStream && in.available() == 0
+                    && ((ChannelInputStream) in).channel() instanceof FileChannel) {
+                copy((FileChannel) ((ChannelInputStream) in).channel(), out);
+            } else {
+                in.transferTo(out);
+            }
+            return 0;
+        }
+
+        int status = 0;
+        Path workingDirectory = directory.get();
+        for (String filePath : arguments.subList(1, arguments.size())) {
+            FileChannel fileIn;
+            try {
+                fileIn = Chunks.open(workingDirectory, filePath);
+            } catch (IOException e) {
+                // e.g. a missing or unreadable file, the other operands are still copied
+                err.println("cat: " + filePath + ": " + Chunks.reason(e));
+                status = 1;
+                continue;
+            }
+            // a failed write, such as a closed pipe, is not the file's fault and is passed on
+            try (fileIn) {
+                if (Files.isDirectory(workingDirectory.resolve(filePath))) {
+                    err.println("cat: " + filePath + ": Is a directory");
+                    status = 1;
+                    continue;
+                }
+                copy(fileIn, out);
+            }
+        }
+        return status;
+    }
+
+    private static void copy(FileChannel fileIn, OutputStream out) throws IOException {
+        if (out instanceof ChannelOutputStream) {
+            WritableByteChannel target = ((ChannelOutputStream) out).channel();
+            if (target instanceof FileChannel) {
+                transferFile(fileIn, (FileChannel) target);
+            } else {
+                copyChannel(fileIn, target);
+            }
+        } else {
+            Channels.newInputStream(fileIn).transferTo(out);
+        }
+    }
+
+    /**
+     * Copy a whole file into another file, letting the kernel move the bytes where it can
+     */
+    public static void transferFile(FileChannel in, FileChannel out) throws IOException {
+        long size = in.size();
+        if (size == 0) {
+            // pseudo-files such as /proc entries report no size but still have content
+            copyChannel(in, out);
+            return;
+        }
+        long position = 0;
+        while (position < size) {
+            long transferred = in.transferTo(position, size - position, out);
+            if (transferred <= 0) {
+                break;
+            }
+            position += transferred;
+        }
+    }
+
+    /**
+     * Copy a channel to its end through the shared direct buffer
+     */
+    public static void copyChannel(FileChannel in, WritableByteChannel out) throws IOException {
+        ByteBuffer buffer = copyBuffer.get();
+        buffer.clear();
+        while (in.read(buffer) != -1) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package shell;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Buffered input stream over a channel. Reads at least as large as the buffer go straight
+ * into the caller's array, and bulk copies can bypass the stream by reading from
+ * {@link #channel()} directly, e.g. with FileChannel.transferTo.
+ */
+public class ChannelInputStream extends InputStream {
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer;
+
+    public ChannelInputStream(ReadableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+        // start out empty, ready to be read from
+        buffer.flip();
+    }
+
+    /**
+     * The underlying channel, positioned after whatever is still buffered (see available())
+     */
+    public ReadableByteChannel channel() {
+        return channel;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!buffer.hasRemaining() && fill() == -1) {
+            return -1;
+        }
+        return buffer.get() & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!buffer.hasRemaining()) {
+            if (len >= buffer.capacity()) {
+                return channel.read(ByteBuffer.wrap(b, off, len));
+            }
+            if (fill() == -1) {
+                return -1;
+            }
+        }
+        int n = Math.min(len, buffer.remaining());
+        buffer.get(b, off, n);
+        return n;
+    }
+
+    /**
+     * Bytes already buffered, readable without touching the channel
+     */
+    @Override
+    public int available() {
+        return buffer.remaining();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private int fill() throws IOException {
+        buffer.clear();
+        int read;
+        do {
+            read = channel.read(buffer);
+        } while (read == 0);
+        buffer.flip();
+        return read;
+    }
+}
@@ -0,0 +1,110 @@
+package shell;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Buffered output stream over a channel. Bulk copies can bypass the buffer by
+ * writing to {@link #channel()} directly, e.g. with FileChannel.transferTo.
+ */
+public class ChannelOutputStream extends OutputStream {
+    // raw terminal streams, bypassing System.out and System.err
+    private static final FileChannel STDOUT = new FileOutputStream(FileDescriptor.out).getChannel();
+    private static final FileChannel STDERR = new FileOutputStream(FileDescriptor.err).getChannel();
+    private static final int TERMINAL_BUFFER_SIZE = 8 * 1024;
+
+    private final WritableByteChannel channel;
+    private final boolean closeChannel;
+    private final ByteBuffer buffer;
+
+    /**
+     * @param closeChannel false for shared channels such as the terminal, which close() only flushes
+     */
+    public ChannelOutputStream(WritableByteChannel channel, boolean closeChannel, int bufferSize) {
+        this.channel = channel;
+        this.closeChannel = closeChannel;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+    }
+
+    /**
+     * New stream onto the process's stdout; closing it only flushes
+     */
+    public static ChannelOutputStream stdout() {
+        return new ChannelOutputStream(STDOUT, false, TERMINAL_BUFFER_SIZE);
+    }
+
+    /**
+     * New stream onto the process's stderr; closing it only flushes
+     */
+    public static ChannelOutputStream stderr() {
+        return new ChannelOutputStream(STDERR, false, TERMINAL_BUFFER_SIZE);
+    }
+
+    /**
+     * Whether this writes straight to the process's own stdout or stderr rather than a file or pipe
+     */
+    public boolean isTerminal() {
+        return channel == STDOUT || channel == STDERR;
+    }
+
+    /**
+     * Whether this writes straight into the given channel
+     */
+    public boolean writesTo(WritableByteChannel target) {
+        return channel == target;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (!buffer.hasRemaining()) {
+            flush();
+        }
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (len > buffer.remaining()) {
+            flush();
+            if (len > buffer.capacity()) {
+                writeFully(ByteBuffer.wrap(b, off, len));
+                return;
+            }
+        }
+        buffer.put(b, off, len);
+    }
+
+    /**
+     * Flush anything buffered and hand out the underlying channel for bulk writes
+     */
+    public WritableByteChannel channel() throws IOException {
+        flush();
+        return channel;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        if (closeChannel) {
+            channel.close();
+        }
+    }
+
+    private void writeFully(ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+    }
+}
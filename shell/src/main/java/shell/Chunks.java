@@ -0,0 +1,89 @@
+package shell;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.FileSystemException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Chunked input for the builtins that scan bytes (wc, head, grep). Files are read
+ * through a FileChannel and streams through read(byte[]), both into one reused heap
+ * buffer per thread, so the scanning loops index a plain array and nothing is decoded.
+ */
+public final class Chunks {
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    // buffer reused by every scan on a thread
+    private static final ThreadLocal<byte[]> scanBuffer = ThreadLocal.withInitial(() -> new byte[CHUNK_SIZE]);
+
+    /**
+     * Receives the input one chunk at a time
+     */
+    @FunctionalInterface
+    public interface Consumer {
+        /**
+         * Handle buffer[0, length) and return false to stop reading
+         */
+        boolean accept(byte[] buffer, int length) throws IOException;
+    }
+
+    private Chunks() {
+    }
+
+    /**
+     * Open a file for reading, resolved against the working directory
+     */
+    public static FileChannel open(Path directory, String file) throws IOException {
+        return FileChannel.open(directory.resolve(file), StandardOpenOption.READ);
+    }
+
+    /**
+     * Feed a channel to the consumer from its current position until the end or until the consumer stops
+     */
+    public static void read(FileChannel channel, Consumer consumer) throws IOException {
+        byte[] chunk = scanBuffer.get();
+        ByteBuffer buffer = ByteBuffer.wrap(chunk);
+        int read;
+        while ((read = channel.read(buffer)) != -1) {
+            if (read > 0 && !consumer.accept(chunk, buffer.position())) {
+                return;
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Feed a stream to the consumer until the end or until the consumer stops
+     */
+    public static void read(InputStream in, Consumer consumer) throws IOException {
+        byte[] chunk = scanBuffer.get();
+        int read;
+        while ((read = in.read(chunk)) != -1) {
+            if (read > 0 && !consumer.accept(chunk, read)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * The reason a file could not be read, worded like the C library's strerror
+     */
+    public static String reason(IOException e) {
+        if (e instanceof NoSuchFileException) {
+            return "No such file or directory";
+        }
+        if (e instanceof AccessDeniedException) {
+            return "Permission denied";
+        }
+        if (e instanceof FileSystemException && ((FileSystemException) e).getReason() != null) {
+            return ((FileSystemException) e).getReason();
+        }
+        // reading a directory fails with the system's own message, e.g. "Is a directory"
+        return e.getMessage();
+    }
+}
@@ -0,0 +1,179 @@
+package shell;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A single command: its arguments with the redirection operators split out
+ */
+public class Command {
+    private final List<String> arguments = new ArrayList<>();
+    private String outputRedirectPath;
+    private String errorRedirectPath;
+    private boolean appendOutput;
+    private boolean appendError;
+    // stdin: a `<` file or here-text, whichever came last
+    private String inputRedirectPath;
+    private String inputText;
+
+    // set by 2>&1 and &>, stderr then shares stdout's stream
+    private boolean errorToOutput;
+    // set by >&2 while stderr is not redirected: stdout goes to the shell's stderr
+    private boolean outputToError;
+
+    public void addArgument(String argument) {
+        arguments.add(argument);
+    }
+
+    /**
+     * Apply `fd>path` or `fd>>path` in order, fd being 1, 2 or Lexer.BOTH for &>
+     */
+    public void redirect(int fd, String path, boolean append) {
+        if (fd == 2) {
+            redirectError(path, append);
+        } else {
+            redirectOutput(path, append);
+            if (fd == Lexer.BOTH) {
+                errorToOutput = true;
+            }
+        }
+    }
+
+    /**
+     * Apply `<path`
+     */
+    public void redirectInput(String path) {
+        inputRedirectPath = path;
+        inputText = null;
+    }
+
+    /**
+     * Feed stdin from text held by the shell: a here-string or here-document
+     */
+    public void inputText(String text) {
+        inputText = text;
+        inputRedirectPath = null;
+    }
+
+    /**
+     * Apply 2>&1: stderr follows stdout's target as it is at this point
+     */
+    public void duplicateError() {
+        // after >&2 stdout is the shell's stderr, which is where stderr goes unredirected
+        if (outputToError) {
+            errorRedirectPath = null;
+            appendError = false;
+            errorToOutput = false;
+            return;
+        }
+        errorRedirectPath = outputRedirectPath;
+        appendError = appendOutput;
+        errorToOutput = true;
+    }
+
+    /**
+     * Apply >&2: stdout follows stderr's target as it is at this point
+     */
+    public void duplicateOutput() {
+        // after 2>&1 both already go to stdout's target
+        if (errorToOutput) {
+            return;
+        }
+        // a shared file is noticed by Redirections, only the shell's own stderr needs a flag
+        outputRedirectPath = errorRedirectPath;
+        appendOutput = appendError;
+        outputToError = errorRedirectPath == null;
+    }
+
+    /**
+     * Whether the command has no arguments to run
+     */
+    public boolean isEmpty() {
+        return arguments.isEmpty();
+    }
+
+    private void redirectOutput(String path, boolean append) {
+        // a later stdout redirection does not move a stderr that was already duplicated
+        if (errorToOutput) {
+            errorRedirectPath = outputRedirectPath;
+            appendError = appendOutput;
+            errorToOutput = false;
+        }
+        outputRedirectPath = path;
+        appendOutput = append;
+        outputToError = false;
+    }
+
+    private void redirectError(String path, boolean append) {
+        errorRedirectPath = path;
+        appendError = append;
+        errorToOutput = false;
+    }
+
+    public List<String> arguments() {
+        return arguments;
+    }
+
+    public String outputRedirectPath() {
+        return outputRedirectPath;
+    }
+
+    public String errorRedirectPath() {
+        return errorRedirectPath;
+    }
+
+    public boolean appendOutput() {
+        return appendOutput;
+    }
+
+    public boolean appendError() {
+        return appendError;
+    }
+
+    public boolean errorToOutput() {
+        return errorToOutput;
+    }
+
+    public boolean outputToError() {
+        return outputToError;
+    }
+
+    /**
+     * Whether stdin is redirected, instead of coming from the previous stage or the shell
+     */
+    public boolean hasInput() {
+        return inputRedirectPath != null || inputText != null;
+    }
+
+    /**
+     * Whether stdout is redirected, instead of going to the next stage or the shell
+     */
+    public boolean hasOutput() {
+        return outputRedirectPath != null || outputToError;
+    }
+
+    /**
+     * Where stdout goes, with a relative target resolved against the given directory
+     */
+    public Redirection stdout(Path directory) {
+        if (outputToError) {
+            return Redirection.ERROR;
+        }
+        return Redirection.resolve(outputRedirectPath, appendOutput, directory);
+    }
+
+    /**
+     * Where stderr goes, with a relative target resolved against the given directory
+     */
+    public Redirection stderr(Path directory) {
+        return Redirection.resolve(errorRedirectPath, appendError, directory);
+    }
+
+    /**
+     * Where stdin comes from, with a relative `<` path resolved against the given directory
+     */
+    public InputSource stdin(Path directory) {
+        return InputSource.resolve(inputRedirectPath, inputText, directory);
+    }
+}
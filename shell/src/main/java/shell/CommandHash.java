@@ -0,0 +1,112 @@
+package shell;
+
+import java.io.File;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Remembers where each external command was found, like bash's hash table.
+ * A remembered command costs one stat to confirm instead of a PATH index check,
+ * and the table is dropped whenever PATH changes.
+ */
+public class CommandHash {
+    /**
+     * Resolved location of one command and how often it was used
+     */
+    public static class Entry {
+        private final File file;
+        private int hits;
+
+        private Entry(File file) {
+            this.file = file;
+        }
+
+        public File file() {
+            return file;
+        }
+
+        public int hits() {
+            return hits;
+        }
+    }
+
+    private final Environment environment;
+    private final PathIndex pathIndex;
+    private final TreeMap<String, Entry> entries = new TreeMap<>();
+    private String[] hashedPath;
+
+    public CommandHash(Environment environment, PathIndex pathIndex) {
+        this.environment = environment;
+        this.pathIndex = pathIndex;
+    }
+
+    /**
+     * Resolve a command name for execution, remembering the result. Returns null if not found.
+     */
+    public synchronized File resolve(String name) {
+        Entry entry = hashed(name);
+        if (entry == null) {
+            File file = pathIndex.lookup(name);
+            if (file == null) {
+                return null;
+            }
+            entry = new Entry(file);
+            entries.put(name, entry);
+        }
+        entry.hits++;
+        return entry.file;
+    }
+
+    /**
+     * Remember a command without running it, returns false if it is not on PATH
+     */
+    public synchronized boolean add(String name) {
+        if (hashed(name) != null) {
+            return true;
+        }
+        File file = pathIndex.lookup(name);
+        if (file == null) {
+            return false;
+        }
+        entries.put(name, new Entry(file));
+        return true;
+    }
+
+    /**
+     * The remembered entry for a name if it is still valid, or null
+     */
+    public synchronized Entry hashed(String name) {
+        checkPath();
+        Entry entry = entries.get(name);
+        if (entry != null && !entry.file.isFile()) {
+            // the file was removed or replaced by something else
+            entries.remove(name);
+            return null;
+        }
+        return entry;
+    }
+
+    public synchronized boolean remove(String name) {
+        return entries.remove(name) != null;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Every remembered command, sorted by name
+     */
+    public synchronized Map<String, Entry> entries() {
+        checkPath();
+        return new TreeMap<>(entries);
+    }
+
+    private void checkPath() {
+        String[] path = environment.pathDirectories();
+        if (path != hashedPath) {
+            entries.clear();
+            hashedPath = path;
+        }
+    }
+}
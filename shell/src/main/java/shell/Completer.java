@@ -0,0 +1,129 @@
+package shell;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tab completion candidates for the word under the cursor: command names in command
+ * position, files and directories everywhere else.
+ */
+public class Completer {
+    private final Set<String> builtinNames;
+    private final PathIndex pathIndex;
+    private final PathCompleter pathCompleter;
+
+    public Completer(Set<String> builtinNames, PathIndex pathIndex, PathCompleter pathCompleter) {
+        this.builtinNames = builtinNames;
+        this.pathIndex = pathIndex;
+        this.pathCompleter = pathCompleter;
+    }
+
+    /**
+     * Whether the text before a word puts it in command position: first on the line, after
+     * |, ;, &&, || or &, or after the time keyword in one of those places
+     */
+    public static boolean isCommandPosition(String before) {
+        String typed = before.trim();
+        if (typed.equals(Parser.TIME) || typed.endsWith(" " + Parser.TIME)) {
+            return isCommandPosition(typed.substring(0, typed.length() - Parser.TIME.length()));
+        }
+        // a & that is part of >& or <& is followed by a descriptor or file, not a command
+        return typed.isEmpty() || typed.endsWith("|") || typed.endsWith(";")
+                || (typed.endsWith("&") && !typed.endsWith(">&") && !typed.endsWith("<&"));
+    }
+
+    /**
+     * Every completion of the word in sorted order. Commands that are already typed in full
+     * are left out, paths keep the typed directory part and end with / for directories.
+     */
+    public List<String> complete(String word, boolean commandWord, Path directory) {
+        if (!commandWord) {
+            List<String> paths = pathCompleter.complete(directory, word);
+            // names come sorted, a / added to a directory can move it past a sibling like a-b
+            if (paths.size() > 1) {
+                Collections.sort(paths);
+            }
+            return paths;
+        }
+
+        // the few matching builtins are sorted on their own, then merged into the sorted PATH matches
+        List<String> commands = new ArrayList<>();
+        for (String cmd : builtinNames) {
+            if (cmd.startsWith(word) && !cmd.equals(word)) {
+                commands.add(cmd);
+            }
+        }
+        Collections.sort(commands);
+
+        List<String> executables = pathIndex.complete(word);
+        List<String> matches = new ArrayList<>(commands.size() + executables.size());
+        int next = 0;
+        for (String fileName : executables) {
+            if (fileName.equals(word)) {
+                continue;
+            }
+            while (next < commands.size() && commands.get(next).compareTo(fileName) <= 0) {
+                matches.add(commands.get(next++));
+            }
+            // a builtin shadows the executable of the same name
+            if (!matches.isEmpty() && matches.get(matches.size() - 1).equals(fileName)) {
+                continue;
+            }
+            matches.add(fileName);
+        }
+        matches.addAll(commands.subList(next, commands.size()));
+        return matches;
+    }
+
+    /**
+     * Longest common prefix of a sorted list: the first and last entries differ the most,
+     * so comparing just those two is enough
+     */
+    public static String longestCommonPrefix(List<String> sorted) {
+        if (sorted.isEmpty()) {
+            return "";
+        }
+        String first = sorted.get(0);
+        String last = sorted.get(sorted.size() - 1);
+        int length = Math.min(first.length(), last.length());
+        int i = 0;
+        while (i < length && first.charAt(i) == last.charAt(i)) {
+            i++;
+        }
+        return first.substring(0, i);
+    }
+
+    /**
+     * Lay out names in columns down then across, like ls, each name starting at `skip`
+     */
+    public static void appendColumns(StringBuilder out, List<String> names, int skip, int width) {
+        int longest = 0;
+        for (String name : names) {
+            longest = Math.max(longest, name.length() - skip);
+        }
+        int columnWidth = longest + 2;
+        int columns = Math.max(1, Math.min(names.size(), width / columnWidth));
+        int rows = (names.size() + columns - 1) / columns;
+
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                int index = column * rows + row;
+                if (index >= names.size()) {
+                    break;
+                }
+                String name = names.get(index);
+                out.append(name, skip, name.length());
+                // pad every column but the last one on the row
+                if (column < columns - 1 && index + rows < names.size()) {
+                    for (int pad = name.length() - skip; pad < columnWidth; pad++) {
+                        out.append(' ');
+                    }
+                }
+            }
+            out.append('\n');
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package shell;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The terminal a shell reads its commands from and writes to: either the process's own
+ * stdio, or one forwarded by a client of the daemon over a socket. Children can only
+ * inherit the streams of the former; for a forwarded console the launcher relays them.
+ */
+public class Console {
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final Console SYSTEM =
+            new Console(System.in, System.out, System.err, null, null, TerminalMode.detect());
+
+    private final InputStream input;
+    private final PrintStream out;
+    private final PrintStream err;
+    // null for the process's own stdout and stderr
+    private final WritableByteChannel stdout;
+    private final WritableByteChannel stderr;
+    private final TerminalMode terminal;
+
+    private Console(InputStream input, PrintStream out, PrintStream err, WritableByteChannel stdout,
+            WritableByteChannel stderr, TerminalMode terminal) {
+        this.input = input;
+        this.out = out;
+        this.err = err;
+        this.stdout = stdout;
+        this.stderr = stderr;
+        this.terminal = terminal;
+    }
+
+    /**
+     * The process's own stdin, stdout, stderr and controlling terminal
+     */
+    public static Console system() {
+        return SYSTEM;
+    }
+
+    /**
+     * A console whose output goes into channels, e.g. frames on a client's socket.
+     * Each write to a channel must reach the other end whole and in order.
+     */
+    public static Console forwarded(InputStream input, WritableByteChannel stdout, WritableByteChannel stderr,
+            TerminalMode terminal) {
+        return new Console(input, print(stdout), print(stderr), stdout, stderr, terminal);
+    }
+
+    /**
+     * Whether output goes somewhere other than the process's own descriptors
+     */
+    public boolean isForwarded() {
+        return stdout != null;
+    }
+
+    /**
+     * Typed keys, or the script piped to the shell
+     */
+    public InputStream input() {
+        return input;
+    }
+
+    /**
+     * Stdout for the shell's own messages, flushed at every line
+     */
+    public PrintStream out() {
+        return out;
+    }
+
+    /**
+     * Stderr for the shell's own messages, flushed at every line
+     */
+    public PrintStream err() {
+        return err;
+    }
+
+    /**
+     * New buffered stream onto stdout; closing it only flushes
+     */
+    public ChannelOutputStream stdout() {
+        return stdout == null ? ChannelOutputStream.stdout() : new ChannelOutputStream(stdout, false, BUFFER_SIZE);
+    }
+
+    /**
+     * New buffered stream onto stderr; closing it only flushes
+     */
+    public ChannelOutputStream stderr() {
+        return stderr == null ? ChannelOutputStream.stderr() : new ChannelOutputStream(stderr, false, BUFFER_SIZE);
+    }
+
+    /**
+     * Whether a stream writes straight to this console's output, not into a file or pipe
+     */
+    public boolean isOutput(OutputStream stream) {
+        if (!(stream instanceof ChannelOutputStream)) {
+            return false;
+        }
+        ChannelOutputStream channelStream = (ChannelOutputStream) stream;
+        if (stdout == null) {
+            return channelStream.isTerminal();
+        }
+        return channelStream.writesTo(stdout) || channelStream.writesTo(stderr);
+    }
+
+    public TerminalMode terminal() {
+        return terminal;
+    }
+
+    private static PrintStream print(WritableByteChannel channel) {
+        return new PrintStream(new ChannelOutputStream(channel, false, BUFFER_SIZE), true, StandardCharsets.UTF_8);
+    }
+}
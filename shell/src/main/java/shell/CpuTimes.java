@@ -0,0 +1,65 @@
+package shell;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+/**
+ * User and system CPU time of the shell together with its finished children, as the
+ * time keyword reports them. On Linux both come from /proc/self/stat, where the kernel
+ * adds a child's times once it has been reaped; ProcessHandle.Info cannot split user
+ * from system time and knows nothing about a child after it exits. Elsewhere the
+ * shell's own total CPU time from ProcessHandle.Info is all there is, counted as user time.
+ * Either way the readings cover the whole JVM, all of its threads and every child reaped
+ * in between, background jobs and other daemon sessions included, not just the timed pipeline.
+ */
+public final class CpuTimes {
+    private static final Path STAT = Paths.get("/proc/self/stat");
+    // USER_HZ, the unit of the times in /proc; 100 on every mainstream Linux port
+    private static final long TICKS_PER_SECOND = 100;
+
+    private final Duration user;
+    private final Duration system;
+
+    private CpuTimes(Duration user, Duration system) {
+        this.user = user;
+        this.system = system;
+    }
+
+    public static CpuTimes now() {
+        try {
+            String stat = new String(Files.readAllBytes(STAT), StandardCharsets.US_ASCII);
+            // the command name in parentheses may hold spaces, the fields after it do not
+            String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+            // utime, stime, cutime and cstime are fields 14 to 17, counted from the pid
+            long user = Long.parseLong(fields[11]) + Long.parseLong(fields[13]);
+            long system = Long.parseLong(fields[12]) + Long.parseLong(fields[14]);
+            return new CpuTimes(ticks(user), ticks(system));
+        } catch (IOException | RuntimeException e) {
+            Duration total = ProcessHandle.current().info().totalCpuDuration().orElse(Duration.ZERO);
+            return new CpuTimes(total, Duration.ZERO);
+        }
+    }
+
+    public Duration user() {
+        return user;
+    }
+
+    public Duration system() {
+        return system;
+    }
+
+    /**
+     * The times spent since an earlier reading
+     */
+    public CpuTimes since(CpuTimes earlier) {
+        return new CpuTimes(user.minus(earlier.user), system.minus(earlier.system));
+    }
+
+    private static Duration ticks(long ticks) {
+        return Duration.ofMillis(ticks * 1000 / TICKS_PER_SECOND);
+    }
+}
@@ -0,0 +1,140 @@
+package shell;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * The shell's variables. Exported variables form the environment of every child
+ * process. The PATH split is cached and only recomputed when PATH changes.
+ * The exit status of the last pipeline is kept here too and read back as $?.
+ */
+public class Environment {
+    private final Map<String, String> variables = new HashMap<>();
+    private final Set<String> exported = new HashSet<>();
+
+    // exit status of the last pipeline, set by builtins and external commands alike
+    private int lastStatus = 0;
+
+    private String splitPath;
+    private String[] pathDirectories = new String[0];
+
+    /**
+     * Start from the environment the JVM was launched with, everything exported
+     */
+    public static Environment fromSystem() {
+        return of(System.getenv());
+    }
+
+    /**
+     * Start from the given variables, everything exported, e.g. a daemon client's environment
+     */
+    public static Environment of(Map<String, String> variables) {
+        Environment environment = new Environment();
+        environment.variables.putAll(variables);
+        environment.exported.addAll(variables.keySet());
+        return environment;
+    }
+
+    /**
+     * An independent copy, for builtins that run in a subshell
+     */
+    public synchronized Environment copy() {
+        Environment copy = new Environment();
+        copy.variables.putAll(variables);
+        copy.exported.addAll(exported);
+        copy.lastStatus = lastStatus;
+        return copy;
+    }
+
+    public synchronized String get(String name) {
+        if (name.equals("?")) {
+            return Integer.toString(lastStatus);
+        }
+        return variables.get(name);
+    }
+
+    public synchronized int lastStatus() {
+        return lastStatus;
+    }
+
+    public synchronized void setLastStatus(int status) {
+        lastStatus = status;
+    }
+
+    public synchronized void set(String name, String value) {
+        variables.put(name, value);
+    }
+
+    /**
+     * Mark a variable as part of the child environment, creating it empty if needed
+     */
+    public synchronized void export(String name) {
+        variables.putIfAbsent(name, "");
+        exported.add(name);
+    }
+
+    public synchronized void unset(String name) {
+        variables.remove(name);
+        exported.remove(name);
+    }
+
+    /**
+     * Exported variables sorted by name
+     */
+    public synchronized Map<String, String> exported() {
+        Map<String, String> result = new TreeMap<>();
+        for (String name : exported) {
+            result.put(name, variables.get(name));
+        }
+        return result;
+    }
+
+    /**
+     * The PATH entries in order. The same array is returned until PATH changes,
+     * so callers can detect a change by identity.
+     */
+    public synchronized String[] pathDirectories() {
+        String path = variables.getOrDefault("PATH", "");
+        if (!path.equals(splitPath)) {
+            List<String> dirs = new ArrayList<>();
+            for (String dir : path.trim().split(":")) {
+                if (!dir.isEmpty()) {
+                    dirs.add(dir);
+                }
+            }
+            pathDirectories = dirs.toArray(new String[0]);
+            splitPath = path;
+        }
+        return pathDirectories;
+    }
+
+    /**
+     * Give a child process exactly the exported variables
+     */
+    public void applyTo(ProcessBuilder pb) {
+        Map<String, String> childEnvironment = pb.environment();
+        childEnvironment.clear();
+        childEnvironment.putAll(exported());
+    }
+
+    /**
+     * Whether a string is a valid variable name
+     */
+    public static boolean isValidName(String name) {
+        if (name.isEmpty() || !(Character.isLetter(name.charAt(0)) || name.charAt(0) == '_')) {
+            return false;
+        }
+        for (int i = 1; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!(Character.isLetterOrDigit(c) || c == '_')) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
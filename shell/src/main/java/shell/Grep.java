@@ -0,0 +1,383 @@
+package shell;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * The grep builtin for patterns that are plain text, matched as bytes against each
+ * line of the chunked input: -i (ASCII only), -v, -c, -n, -l, -q, -h, -H, -s and -F.
+ * Patterns with regular expression syntax and every other option run the real grep,
+ * so the builtin never has to agree with it on what a regular expression means.
+ */
+public class Grep implements Builtin {
+    // characters with a meaning in basic regular expressions, and the extra ones of -E
+    private static final String BASIC_SYNTAX = "\\.[]*^$";
+    private static final String EXTENDED_SYNTAX = "\\.[]*^$+?(){}|";
+
+    private final Supplier<Path> directory;
+    private final Builtin fallback;
+
+    public Grep(Supplier<Path> directory, Builtin fallback) {
+        this.directory = directory;
+        this.fallback = fallback;
+    }
+
+    /**
+     * What to print, from the options
+     */
+    private static final class Options {
+        boolean ignoreCase;
+        boolean invert;
+        boolean count;
+        boolean lineNumbers;
+        boolean listFiles;
+        boolean quiet;
+        boolean noMessages;
+        // null until -h or -H says otherwise
+        Boolean withFileName;
+        String syntax = BASIC_SYNTAX;
+    }
+
+    @Override
+    public int run(List<String> arguments, InputStream in, OutputStream out, PrintStream err) throws IOException {
+        Options options = new Options();
+        String pattern = null;
+        List<String> files = new ArrayList<>();
+        boolean parsingOptions = true;
+        for (int i = 1; i < arguments.size(); i++) {
+            String argument = arguments.get(i);
+            if (!parsingOptions || argument.equals("-") || !argument.startsWith("-")) {
+                files.add(argument);
+                continue;
+            }
+            if (argument.equals("--")) {
+                parsingOptions = false;
+                continue;
+            }
+            if (argument.startsWith("--")) {
+                if (!longOption(argument, options)) {
+                    return fallback.run(arguments, in, out, err);
+                }
+                continue;
+            }
+            for (int k = 1; k < argument.length(); k++) {
+                char option = argument.charAt(k);
+                if (option == 'e') {
+                    // the pattern is the rest of the word or the next argument, a second one is left to grep
+                    if (pattern != null || k + 1 == argument.length() && i + 1 == arguments.size()) {
+                        return fallback.run(arguments, in, out, err);
+                    }
+                    pattern = k + 1 < argument.length() ? argument.substring(k + 1) : arguments.get(++i);
+                    break;
+                }
+                if (!shortOption(option, options)) {
+                    return fallback.run(arguments, in, out, err);
+                }
+            }
+        }
+        // without -e the first operand is the pattern
+        if (pattern == null && !files.isEmpty()) {
+            pattern = files.remove(0);
+        }
+
+        // several patterns, regular expressions, non-ASCII case folding and -l with -c are left to grep
+        if (pattern == null || pattern.indexOf('\n') >= 0 || options.listFiles && options.count) {
+            return fallback.run(arguments, in, out, err);
+        }
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (options.syntax.indexOf(c) >= 0 || options.ignoreCase && c >= 0x80) {
+                return fallback.run(arguments, in, out, err);
+            }
+        }
+
+        if (files.isEmpty()) {
+            files.add("-");
+        }
+        // the shell's own stdin can only be handed to a child, so the real grep reads it
+        if (InputSource.isUnredirected(in) && files.contains("-")) {
+            return fallback.run(arguments, in, out, err);
+        }
+        boolean withFileName = options.withFileName != null ? options.withFileName : files.size() > 1;
+        byte[] needle = pattern.getBytes(StandardCharsets.UTF_8);
+        if (options.ignoreCase) {
+            for (int i = 0; i < needle.length; i++) {
+                needle[i] = lower(needle[i]);
+            }
+        }
+
+        Path workingDirectory = directory.get();
+        boolean selected = false;
+        boolean failed = false;
+        for (String file : files) {
+            String name = file.equals("-") ? "(standard input)" : file;
+            LineMatcher matcher = new LineMatcher(options, needle, withFileName ? name : null, name, out, err);
+            if (file.equals("-")) {
+                matcher.scan(in);
+            } else {
+                FileChannel channel;
+                try {
+                    channel = Chunks.open(workingDirectory, file);
+                } catch (IOException e) {
+                    if (!options.noMessages) {
+                        err.println("grep: " + file + ": " + Chunks.reason(e));
+                    }
+                    failed = true;
+                    continue;
+                }
+                try (channel) {
+                    if (Files.isDirectory(workingDirectory.resolve(file))) {
+                        if (!options.noMessages) {
+                            err.println("grep: " + file + ": Is a directory");
+                        }
+                        failed = true;
+                        continue;
+                    }
+                    matcher.scan(channel);
+                }
+            }
+            selected |= matcher.selected > 0;
+            if (options.quiet && selected) {
+                return 0;
+            }
+        }
+        return failed ? 2 : selected ? 0 : 1;
+    }
+
+    private static boolean shortOption(char option, Options options) {
+        switch (option) {
+            case 'i':
+                options.ignoreCase = true;
+                return true;
+            case 'v':
+                options.invert = true;
+                return true;
+            case 'c':
+                options.count = true;
+                return true;
+            case 'n':
+                options.lineNumbers = true;
+                return true;
+            case 'l':
+                options.listFiles = true;
+                return true;
+            case 'q':
+                options.quiet = true;
+                return true;
+            case 's':
+                options.noMessages = true;
+                return true;
+            case 'h':
+                options.withFileName = false;
+                return true;
+            case 'H':
+                options.withFileName = true;
+                return true;
+            case 'F':
+                options.syntax = "";
+                return true;
+            case 'E':
+                options.syntax = EXTENDED_SYNTAX;
+                return true;
+            case 'G':
+                options.syntax = BASIC_SYNTAX;
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean longOption(String option, Options options) {
+        switch (option) {
+            case "--ignore-case":
+                return shortOption('i', options);
+            case "--invert-match":
+                return shortOption('v', options);
+            case "--count":
+                return shortOption('c', options);
+            case "--line-number":
+                return shortOption('n', options);
+            case "--files-with-matches":
+                return shortOption('l', options);
+            case "--quiet":
+            case "--silent":
+                return shortOption('q', options);
+            case "--no-messages":
+                return shortOption('s', options);
+            case "--no-filename":
+                return shortOption('h', options);
+            case "--with-filename":
+                return shortOption('H', options);
+            case "--fixed-strings":
+                return shortOption('F', options);
+            case "--extended-regexp":
+                return shortOption('E', options);
+            case "--basic-regexp":
+                return shortOption('G', options);
+            default:
+                return false;
+        }
+    }
+
+    private static byte lower(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+
+    /**
+     * Splits one input into lines and prints the selected ones. A line cut by the end of
+     * a chunk is carried into the next; lines inside a chunk are matched where they lie.
+     */
+    private static final class LineMatcher implements Chunks.Consumer {
+        private final Options options;
+        private final byte[] needle;
+        private final byte[] prefix;
+        private final String name;
+        private final OutputStream out;
+        private final PrintStream err;
+
+        private byte[] carry = new byte[256];
+        private int carryLength;
+        private long lineNumber;
+        private boolean binary;
+        private boolean stopped;
+        long selected;
+
+        LineMatcher(Options options, byte[] needle, String prefix, String name, OutputStream out,
+                PrintStream err) {
+            this.options = options;
+            this.needle = needle;
+            this.prefix = prefix == null ? new byte[0] : (prefix + ":").getBytes(StandardCharsets.UTF_8);
+            this.name = name;
+            this.out = out;
+            this.err = err;
+        }
+
+        void scan(FileChannel channel) throws IOException {
+            Chunks.read(channel, this);
+            finish();
+        }
+
+        void scan(InputStream in) throws IOException {
+            Chunks.read(in, this);
+            finish();
+        }
+
+        @Override
+        public boolean accept(byte[] buffer, int length) throws IOException {
+            // like grep, input holding a NUL byte is binary and its lines are not printed
+            if (!binary) {
+                for (int i = 0; i < length; i++) {
+                    if (buffer[i] == 0) {
+                        binary = true;
+                        break;
+                    }
+                }
+            }
+
+            int start = 0;
+            while (start < length) {
+                int end = start;
+                while (end < length && buffer[end] != '\n') {
+                    end++;
+                }
+                if (end == length) {
+                    append(buffer, start, end);
+                    break;
+                }
+                if (carryLength > 0) {
+                    append(buffer, start, end);
+                    line(carry, 0, carryLength);
+                    carryLength = 0;
+                } else {
+                    line(buffer, start, end);
+                }
+                if (stopped) {
+                    return false;
+                }
+                start = end + 1;
+            }
+            return true;
+        }
+
+        private void finish() throws IOException {
+            // the last line may have no newline
+            if (!stopped && carryLength > 0) {
+                line(carry, 0, carryLength);
+            }
+            carryLength = 0;
+            if (options.count && !options.quiet) {
+                String count = new String(prefix, StandardCharsets.UTF_8) + selected + "\n";
+                out.write(count.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        private void append(byte[] buffer, int start, int end) {
+            int length = end - start;
+            if (carryLength + length > carry.length) {
+                carry = Arrays.copyOf(carry, Math.max(carry.length * 2, carryLength + length));
+            }
+            System.arraycopy(buffer, start, carry, carryLength, length);
+            carryLength += length;
+        }
+
+        private void line(byte[] buffer, int start, int end) throws IOException {
+            lineNumber++;
+            if (contains(buffer, start, end) == options.invert) {
+                return;
+            }
+            selected++;
+            if (options.quiet) {
+                stopped = true;
+            } else if (options.listFiles) {
+                out.write((name + "\n").getBytes(StandardCharsets.UTF_8));
+                stopped = true;
+            } else if (options.count) {
+                return;
+            } else if (binary) {
+                // after the lines already printed for this file, but not mixed into the matches
+                out.flush();
+                err.println("grep: " + name + ": binary file matches");
+                stopped = true;
+            } else {
+                out.write(prefix);
+                if (options.lineNumbers) {
+                    out.write((lineNumber + ":").getBytes(StandardCharsets.UTF_8));
+                }
+                out.write(buffer, start, end - start);
+                out.write('\n');
+            }
+        }
+
+        private boolean contains(byte[] buffer, int start, int end) {
+            int last = end - needle.length;
+            if (needle.length == 0) {
+                return true;
+            }
+            byte first = needle[0];
+            boolean ignoreCase = options.ignoreCase;
+            outer:
+            for (int i = start; i <= last; i++) {
+                if ((ignoreCase ? lower(buffer[i]) : buffer[i]) != first) {
+                    continue;
+                }
+                for (int k = 1; k < needle.length; k++) {
+                    if ((ignoreCase ? lower(buffer[i + k]) : buffer[i + k]) != needle[k]) {
+                        continue outer;
+                    }
+                }
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package shell;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * The head builtin for -n and -c with plain counts. Reading stops as soon as enough
+ * lines or bytes have been written, however large the file. Suffixes such as 1K,
+ * negative counts and other options run the real head.
+ */
+public class Head implements Builtin {
+    private static final long DEFAULT_LINES = 10;
+
+    private final Supplier<Path> directory;
+    private final Builtin fallback;
+
+    public Head(Supplier<Path> directory, Builtin fallback) {
+        this.directory = directory;
+        this.fallback = fallback;
+    }
+
+    @Override
+    public int run(List<String> arguments, InputStream in, OutputStream out, PrintStream err) throws IOException {
+        long count = DEFAULT_LINES;
+        boolean bytes = false;
+        List<String> files = new ArrayList<>();
+        boolean options = true;
+        for (int i = 1; i < arguments.size(); i++) {
+            String argument = arguments.get(i);
+            String value = null;
+            if (!options || argument.equals("-") || !argument.startsWith("-")) {
+                files.add(argument);
+                continue;
+            } else if (argument.equals("--")) {
+                options = false;
+                continue;
+            } else if (argument.equals("-n") || argument.equals("-c")) {
+                if (i + 1 == arguments.size()) {
+                    return fallback.run(arguments, in, out, err);
+                }
+                bytes = argument.equals("-c");
+                value = arguments.get(++i);
+            } else if (argument.startsWith("-n") || argument.startsWith("-c")) {
+                bytes = argument.startsWith("-c");
+                value = argument.substring(2);
+            } else if (argument.startsWith("--lines=") || argument.startsWith("--bytes=")) {
+                bytes = argument.startsWith("--bytes=");
+                value = argument.substring(8);
+            } else {
+                // the old form, head -5
+                bytes = false;
+                value = argument.substring(1);
+            }
+
+            count = parseCount(value);
+            if (count < 0) {
+                return fallback.run(arguments, in, out, err);
+            }
+        }
+        if (files.isEmpty()) {
+            files.add("-");
+        }
+        // the shell's own stdin can only be handed to a child, so the real head reads it
+        if (InputSource.isUnredirected(in) && files.contains("-")) {
+            return fallback.run(arguments, in, out, err);
+        }
+
+        Path workingDirectory = directory.get();
+        int status = 0;
+        boolean first = true;
+        for (String file : files) {
+            if (files.size() > 1) {
+                String name = file.equals("-") ? "standard input" : file;
+                String header = (first ? "" : "\n") + "==> " + name + " <==\n";
+                out.write(header.getBytes(StandardCharsets.UTF_8));
+            }
+            first = false;
+
+            // with a count of 0 files are still opened, so missing ones are reported
+            Chunks.Consumer copy = bytes ? new ByteCopy(out, count) : new LineCopy(out, count);
+            if (file.equals("-")) {
+                if (count > 0) {
+                    Chunks.read(in, copy);
+                }
+                continue;
+            }
+            FileChannel channel;
+            try {
+                channel = Chunks.open(workingDirectory, file);
+            } catch (IOException e) {
+                err.println("head: cannot open '" + file + "' for reading: " + Chunks.reason(e));
+                status = 1;
+                continue;
+            }
+            // a failed write, such as a closed pipe, is not the file's fault and is passed on
+            try (channel) {
+                if (Files.isDirectory(workingDirectory.resolve(file))) {
+                    err.println("head: error reading '" + file + "': Is a directory");
+                    status = 1;
+                } else if (count > 0) {
+                    Chunks.read(channel, copy);
+                }
+            }
+        }
+        return status;
+    }
+
+    /**
+     * A count of plain digits, or -1 for anything the real head has to interpret
+     */
+    private static long parseCount(String value) {
+        if (value.isEmpty() || value.length() > 18) {
+            return -1;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) < '0' || value.charAt(i) > '9') {
+                return -1;
+            }
+        }
+        return Long.parseLong(value);
+    }
+
+    /**
+     * Writes chunks up to and including the last wanted newline
+     */
+    private static final class LineCopy implements Chunks.Consumer {
+        private final OutputStream out;
+        private long remaining;
+
+        LineCopy(OutputStream out, long lines) {
+            this.out = out;
+            this.remaining = lines;
+        }
+
+        @Override
+        public boolean accept(byte[] buffer, int length) throws IOException {
+            for (int i = 0; i < length; i++) {
+                if (buffer[i] == '\n' && --remaining == 0) {
+                    out.write(buffer, 0, i + 1);
+                    return false;
+                }
+            }
+            out.write(buffer, 0, length);
+            return true;
+        }
+    }
+
+    /**
+     * Writes chunks until the wanted number of bytes is out
+     */
+    private static final class ByteCopy implements Chunks.Consumer {
+        private final OutputStream out;
+        private long remaining;
+
+        ByteCopy(OutputStream out, long bytes) {
+            this.out = out;
+            this.remaining = bytes;
+        }
+
+        @Override
+        public boolean accept(byte[] buffer, int length) throws IOException {
+            int wanted = (int) Math.min(length, remaining);
+            out.write(buffer, 0, wanted);
+            remaining -= wanted;
+            return remaining > 0;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package shell;
+
+import java.util.Arrays;
+
+/**
+ * Latency histogram over nanosecond values with log-linear buckets: every power of two
+ * is split into 8 equal buckets, so a bucket is at most 12.5% wide at any scale and the
+ * whole range of a long fits in a few hundred counters.
+ */
+public class Histogram {
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (63 - SUB_BITS + 1) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max;
+
+    public synchronized void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts[index(value)]++;
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    public synchronized void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    public synchronized long count() {
+        return count;
+    }
+
+    public synchronized long min() {
+        return count == 0 ? 0 : min;
+    }
+
+    public synchronized long max() {
+        return max;
+    }
+
+    public synchronized long mean() {
+        return count == 0 ? 0 : sum / count;
+    }
+
+    /**
+     * The value below which the given fraction of the recordings fall, to bucket precision
+     */
+    public synchronized long percentile(double fraction) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * The non-empty buckets as pairs of upper bound and count, in increasing order
+     */
+    public synchronized long[][] buckets() {
+        int used = 0;
+        for (long c : counts) {
+            if (c > 0) {
+                used++;
+            }
+        }
+        long[][] buckets = new long[used][];
+        int next = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            if (counts[i] > 0) {
+                buckets[next++] = new long[] {upperBound(i), counts[i]};
+            }
+        }
+        return buckets;
+    }
+
+    private static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    private static long upperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS - 1 + SUB_BITS;
+        long width = 1L << (exponent - SUB_BITS);
+        return (SUB_BUCKETS + index % SUB_BUCKETS) * width + width - 1;
+    }
+}
@@ -0,0 +1,218 @@
+package shell;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Command history kept in a ring buffer of the most recent entries and appended to a file.
+ * The file is read on first use, from its end, so only the lines that fit in the ring are
+ * ever decoded. New entries are written in batches instead of one write per command.
+ */
+public class History {
+    // entries written to the file together
+    private static final int WRITE_BATCH = 16;
+
+    // bytes read per step when loading the file backwards
+    private static final int READ_CHUNK = 64 * 1024;
+
+    /**
+     * The Up/Down position while a line is edited. The line being typed is kept as a draft
+     * below the newest entry and comes back when Down moves past it.
+     */
+    public class Cursor {
+        // entry shown, -1 while on the draft
+        private int position = -1;
+        private String draft = "";
+
+        /**
+         * The next older entry, or null when there is none
+         */
+        public String older(CharSequence current) {
+            synchronized (History.this) {
+                int older = (position == -1 ? size() : position) - 1;
+                if (older < 0) {
+                    return null;
+                }
+                if (position == -1) {
+                    draft = current.toString();
+                }
+                position = older;
+                return get(position);
+            }
+        }
+
+        /**
+         * The next newer entry, the draft after the newest, or null when already on the draft
+         */
+        public String newer() {
+            synchronized (History.this) {
+                if (position == -1) {
+                    return null;
+                }
+                position++;
+                if (position >= size()) {
+                    position = -1;
+                    return draft;
+                }
+                return get(position);
+            }
+        }
+
+        /**
+         * Back on the draft, e.g. after a search replaced the line
+         */
+        public void reset() {
+            position = -1;
+        }
+    }
+
+    private final Path file;
+    private final String[] entries;
+    private int start = 0;
+    private int size = 0;
+    private boolean loaded = false;
+    private final List<String> pending = new ArrayList<>();
+
+    public History(Path file, int capacity) {
+        this.file = file;
+        this.entries = new String[Math.max(1, capacity)];
+    }
+
+    /**
+     * Number of entries in memory
+     */
+    public synchronized int size() {
+        load();
+        return size;
+    }
+
+    /**
+     * Entry by position, 0 being the oldest kept
+     */
+    public synchronized String get(int index) {
+        load();
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("history entry " + index + " of " + size);
+        }
+        return entries[(start + index) % entries.length];
+    }
+
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Record a command line, skipping an immediate repeat of the previous one
+     */
+    public synchronized void add(String line) {
+        load();
+        if (size > 0 && get(size - 1).equals(line)) {
+            return;
+        }
+        push(line);
+        pending.add(line);
+        if (pending.size() >= WRITE_BATCH) {
+            flush();
+        }
+    }
+
+    /**
+     * Index of the newest entry at or before `from` that contains the query, or -1
+     */
+    public synchronized int searchBackward(String query, int from) {
+        load();
+        for (int i = Math.min(from, size - 1); i >= 0; i--) {
+            if (get(i).contains(query)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Append the entries not yet in the file
+     */
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (String line : pending) {
+                writer.write(line);
+                writer.write('\n');
+            }
+        } catch (IOException e) {
+            // history is best effort, the shell keeps working without it
+        }
+        pending.clear();
+    }
+
+    private void push(String line) {
+        if (size < entries.length) {
+            entries[(start + size) % entries.length] = line;
+            size++;
+        } else {
+            entries[start] = line;
+            start = (start + 1) % entries.length;
+        }
+    }
+
+    /**
+     * Read just enough of the end of the file to fill the ring
+     */
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long position = channel.size();
+            int newlines = 0;
+            ByteBuffer chunk = ByteBuffer.allocate(READ_CHUNK);
+
+            // walk back until one more line than the ring holds has been seen
+            while (position > 0 && newlines <= entries.length) {
+                int length = (int) Math.min(READ_CHUNK, position);
+                position -= length;
+                chunk.clear().limit(length);
+                while (chunk.hasRemaining() && channel.read(chunk, position + chunk.position()) >= 0) {
+                    // keep reading until the chunk is full
+                }
+                for (int i = 0; i < length; i++) {
+                    if (chunk.get(i) == '\n') {
+                        newlines++;
+                    }
+                }
+            }
+
+            ByteBuffer tail = ByteBuffer.allocate((int) (channel.size() - position));
+            while (tail.hasRemaining() && channel.read(tail, position + tail.position()) >= 0) {
+                // keep reading until the tail is complete
+            }
+            String[] lines = new String(tail.array(), StandardCharsets.UTF_8).split("\n");
+
+            // the first line may be cut off when the walk stopped mid-file
+            int first = position > 0 ? 1 : 0;
+            for (int i = Math.max(first, lines.length - entries.length); i < lines.length; i++) {
+                if (!lines[i].isEmpty()) {
+                    push(lines[i]);
+                }
+            }
+        } catch (IOException e) {
+            // start with an empty history
+        }
+    }
+}
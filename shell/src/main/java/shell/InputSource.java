@@ -0,0 +1,147 @@
+package shell;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Where a command's stdin comes from: the inherited stream, a file (<), or text held
+ * by the shell (<<< and here-documents). A child gets a file as its own descriptor;
+ * a builtin reads it through a buffered channel stream, never loading it whole.
+ */
+public class InputSource {
+    public enum Kind {
+        INHERIT, FILE, TEXT
+    }
+
+    public static final InputSource INHERIT = new InputSource(Kind.INHERIT, null, null, null);
+
+    // buffer of the stream a builtin reads a file through
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final Kind kind;
+    private final String name;
+    private final File file;
+    private final String text;
+
+    private InputSource(Kind kind, String name, File file, String text) {
+        this.kind = kind;
+        this.name = name;
+        this.file = file;
+        this.text = text;
+    }
+
+    /**
+     * Bind an optional `<` path, relative to the given directory, or else optional here-text, to a source
+     */
+    public static InputSource resolve(String path, String text, Path directory) {
+        if (path != null) {
+            return new InputSource(Kind.FILE, path, directory.resolve(path).normalize().toFile(), null);
+        }
+        if (text != null) {
+            return new InputSource(Kind.TEXT, null, null, text);
+        }
+        return INHERIT;
+    }
+
+    /**
+     * What a builtin reads when its stdin is not redirected and no stage feeds it: nothing,
+     * the shell's stdin stays with the shell. A program the builtin runs gets it instead.
+     */
+    public static InputStream unredirected() {
+        return new Unredirected();
+    }
+
+    /**
+     * Whether a builtin's stdin is the one from unredirected()
+     */
+    public static boolean isUnredirected(InputStream in) {
+        return in instanceof Unredirected;
+    }
+
+    public Kind kind() {
+        return kind;
+    }
+
+    public File file() {
+        return file;
+    }
+
+    /**
+     * Make sure a `<` file can be opened, failing with a message worded like bash's
+     */
+    public void check() throws IOException {
+        if (kind != Kind.FILE) {
+            return;
+        }
+        openChannel().close();
+    }
+
+    /**
+     * Translate into a ProcessBuilder redirect. Text is written into the child's stdin by feed().
+     */
+    public ProcessBuilder.Redirect toProcessRedirect() {
+        switch (kind) {
+            case FILE:
+                return ProcessBuilder.Redirect.from(file);
+            case TEXT:
+                return ProcessBuilder.Redirect.PIPE;
+            default:
+                return ProcessBuilder.Redirect.INHERIT;
+        }
+    }
+
+    /**
+     * Write here-text into a started child's stdin and close it, on a thread of its own so a
+     * child that reads slowly, or not at all, cannot block the shell
+     */
+    public void feed(Process process) {
+        if (kind != Kind.TEXT) {
+            return;
+        }
+        Thread writer = new Thread(() -> {
+            try (OutputStream stdin = process.getOutputStream()) {
+                stdin.write(text.getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                // the child exited without reading all of its input
+            }
+        }, "here-text");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Open this source as a stream for a builtin. Without a redirection the given stream is used.
+     */
+    public InputStream open(InputStream inherited) throws IOException {
+        switch (kind) {
+            case FILE:
+                return new ChannelInputStream(openChannel(), READ_BUFFER_SIZE);
+            case TEXT:
+                return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+            default:
+                return inherited;
+        }
+    }
+
+    private static class Unredirected extends InputStream {
+        @Override
+        public int read() {
+            return -1;
+        }
+    }
+
+    private FileChannel openChannel() throws IOException {
+        try {
+            return FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        } catch (IOException e) {
+            throw new IOException(name + ": " + Chunks.reason(e), e);
+        }
+    }
+}
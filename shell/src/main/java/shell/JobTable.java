@@ -0,0 +1,147 @@
+package shell;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Background jobs started with `&`.
+ * A job is marked done from the completion callback of its processes, so nothing
+ * polls; finished jobs stay in the table until they have been reported once.
+ */
+public class JobTable {
+    /**
+     * One background command line and its processes
+     */
+    public static class Job {
+        private final int id;
+        private final String commandLine;
+        private final List<Process> processes;
+        private final CompletableFuture<Integer> status;
+        private volatile boolean done;
+
+        private Job(int id, String commandLine, List<Process> processes, CompletableFuture<Integer> status) {
+            this.id = id;
+            this.commandLine = commandLine;
+            this.processes = processes;
+            this.status = status;
+        }
+
+        public int id() {
+            return id;
+        }
+
+        public String commandLine() {
+            return commandLine;
+        }
+
+        public boolean isDone() {
+            return done;
+        }
+
+        /**
+         * Pid of the last process in the job, or -1 when it runs only builtins
+         */
+        public long pid() {
+            return processes.isEmpty() ? -1 : processes.get(processes.size() - 1).pid();
+        }
+
+        public List<Process> processes() {
+            return processes;
+        }
+
+        /**
+         * Block until the job has finished and return its exit status
+         */
+        public int waitFor() throws InterruptedException {
+            try {
+                return status.get();
+            } catch (ExecutionException e) {
+                return 1;
+            }
+        }
+
+        /**
+         * Status line in the format of the jobs builtin
+         */
+        public String describe() {
+            String state;
+            if (!done) {
+                state = "Running";
+            } else {
+                int exitStatus = status.join();
+                state = exitStatus == 0 ? "Done" : "Exit " + exitStatus;
+            }
+            return String.format("[%d]  %-24s%s", id, state, commandLine);
+        }
+    }
+
+    private final TreeMap<Integer, Job> jobs = new TreeMap<>();
+
+    /**
+     * Register a started command line and return its job
+     */
+    public synchronized Job add(String commandLine, List<Process> processes, CompletableFuture<Integer> status) {
+        int id = jobs.isEmpty() ? 1 : jobs.lastKey() + 1;
+        Job job = new Job(id, commandLine, processes, status);
+        jobs.put(id, job);
+        status.whenComplete((exitStatus, error) -> job.done = true);
+        return job;
+    }
+
+    /**
+     * Look up a job by `%n`, by the pid of one of its processes, or the most recent job for null
+     */
+    public synchronized Job find(String spec) {
+        if (spec == null) {
+            return jobs.isEmpty() ? null : jobs.lastEntry().getValue();
+        }
+        try {
+            if (spec.startsWith("%")) {
+                return jobs.get(Integer.parseInt(spec.substring(1)));
+            }
+            long pid = Long.parseLong(spec);
+            for (Job job : jobs.values()) {
+                for (Process process : job.processes) {
+                    if (process.pid() == pid) {
+                        return job;
+                    }
+                }
+            }
+        } catch (NumberFormatException e) {
+            // not a job spec
+        }
+        return null;
+    }
+
+    /**
+     * Every job, in job number order
+     */
+    public synchronized List<Job> list() {
+        return new ArrayList<>(jobs.values());
+    }
+
+    public synchronized void remove(Job job) {
+        jobs.remove(job.id);
+    }
+
+    /**
+     * Print and drop the jobs that finished since the last report
+     */
+    public synchronized void reportFinished(PrintStream out) {
+        List<Integer> finished = new ArrayList<>();
+        for (Map.Entry<Integer, Job> entry : jobs.entrySet()) {
+            if (entry.getValue().isDone()) {
+                out.println(entry.getValue().describe());
+                finished.add(entry.getKey());
+            }
+        }
+        for (Integer id : finished) {
+            jobs.remove(id);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package shell;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Prepares external commands: the name is resolved through the command hash and the
+ * child gets the shell's working directory and exported environment. Streams a child
+ * would inherit are its own descriptors on the process's console; on a forwarded console
+ * stdin becomes /dev/null and stdout and stderr are relayed through the shell. Stdout sent
+ * to the shell's stderr by >&2 is always relayed, as a child cannot be handed a copy of it.
+ */
+public class Launcher {
+    /**
+     * A child that could not be started, with bash's wording and exit status: 127 when its
+     * file is gone, 126 when it cannot be executed
+     */
+    public static class StartFailure extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        StartFailure(String message, int status, IOException cause) {
+            super(message, cause);
+            this.status = status;
+        }
+
+        public int status() {
+            return status;
+        }
+
+        /**
+         * Reword the JDK's "Cannot run program "/bin/x" (in directory "/tmp"): error=8, Exec format error"
+         * as "/bin/x: Exec format error"
+         */
+        static StartFailure of(IOException e) {
+            String message = String.valueOf(e.getMessage());
+            int open = message.indexOf('"');
+            int close = open < 0 ? -1 : message.indexOf('"', open + 1);
+            int error = message.indexOf("error=");
+            int comma = error < 0 ? -1 : message.indexOf(", ", error);
+            if (close < 0 || comma < 0) {
+                // not an exec failure, e.g. a redirect target that went away since it was checked
+                return new StartFailure(message, 1, e);
+            }
+            int status = message.startsWith("error=2,", error) ? 127 : 126;
+            return new StartFailure(message.substring(open + 1, close) + ": " + message.substring(comma + 2), status, e);
+        }
+    }
+
+    private static final File NULL_DEVICE = new File("/dev/null");
+
+    private final CommandHash commandHash;
+    private final Environment environment;
+    private final Console console;
+
+    public Launcher(CommandHash commandHash, Environment environment) {
+        this(commandHash, environment, Console.system());
+    }
+
+    public Launcher(CommandHash commandHash, Environment environment, Console console) {
+        this.commandHash = commandHash;
+        this.environment = environment;
+        this.console = console;
+    }
+
+    /**
+     * The console that children inherit their unredirected streams from
+     */
+    public Console console() {
+        return console;
+    }
+
+    /**
+     * Whether a name resolves to an external command
+     */
+    public boolean isCommand(String name) {
+        return commandHash.add(name);
+    }
+
+    /**
+     * A process builder that uses the argument list as the child's argv, with argv[0]
+     * replaced in place by its absolute path, or null if the command is not found.
+     * Redirections are left to the caller.
+     */
+    public ProcessBuilder builder(List<String> arguments, Path directory) {
+        File executable = commandHash.resolve(arguments.get(0));
+        if (executable == null) {
+            return null;
+        }
+        arguments.set(0, executable.getPath());
+        ProcessBuilder pb = new ProcessBuilder(arguments);
+        pb.directory(directory.toFile());
+        environment.applyTo(pb);
+        return pb;
+    }
+
+    /**
+     * Start one child prepared by builder()
+     */
+    public Process start(ProcessBuilder pb) throws StartFailure {
+        try {
+            ChannelOutputStream[] relay = detach(pb);
+            return relayed(pb.start(), relay);
+        } catch (IOException e) {
+            throw StartFailure.of(e);
+        }
+    }
+
+    /**
+     * Start children connected stdout to stdin, as ProcessBuilder.startPipeline does.
+     * If one cannot be started, none are left running.
+     */
+    public List<Process> startPipeline(List<ProcessBuilder> builders) throws StartFailure {
+        try {
+            return startAll(builders);
+        } catch (IOException e) {
+            throw StartFailure.of(e);
+        }
+    }
+
+    private List<Process> startAll(List<ProcessBuilder> builders) throws IOException {
+        List<ChannelOutputStream[]> relays = new ArrayList<>();
+        for (ProcessBuilder pb : builders) {
+            relays.add(detach(pb));
+        }
+        List<Process> started = ProcessBuilder.startPipeline(builders);
+        List<Process> relayed = new ArrayList<>(started.size());
+        for (int i = 0; i < started.size(); i++) {
+            relayed.add(relayed(started.get(i), relays.get(i)));
+        }
+        return relayed;
+    }
+
+    /**
+     * Replace the bindings of a builder that the child cannot have directly: >&2, and on a
+     * forwarded console the inherited ones. Returns the console streams its stdout and
+     * stderr are now relayed into, null where not relayed.
+     */
+    private ChannelOutputStream[] detach(ProcessBuilder pb) {
+        ChannelOutputStream output = null;
+        ChannelOutputStream error = null;
+        // copied by the shell, so it lands at the same offset of the same stderr as the shell's own output
+        if (pb.redirectOutput().equals(Redirection.TO_STDERR)) {
+            output = console.stderr();
+        }
+        if (console.isForwarded()) {
+            if (pb.redirectInput() == ProcessBuilder.Redirect.INHERIT) {
+                pb.redirectInput(ProcessBuilder.Redirect.from(NULL_DEVICE));
+            }
+            if (pb.redirectOutput() == ProcessBuilder.Redirect.INHERIT) {
+                output = console.stdout();
+            }
+            if (!pb.redirectErrorStream() && pb.redirectError() == ProcessBuilder.Redirect.INHERIT) {
+                error = console.stderr();
+            }
+        }
+        if (output != null) {
+            pb.redirectOutput(ProcessBuilder.Redirect.PIPE);
+        }
+        if (error != null) {
+            pb.redirectError(ProcessBuilder.Redirect.PIPE);
+        }
+        return new ChannelOutputStream[] {output, error};
+    }
+
+    private static Process relayed(Process process, ChannelOutputStream[] relay) {
+        if (relay[0] == null && relay[1] == null) {
+            return process;
+        }
+        return RelayedProcess.relay(process, relay[0], relay[1]);
+    }
+}
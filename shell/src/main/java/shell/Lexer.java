@@ -0,0 +1,486 @@
+package shell;
+
+import java.util.Arrays;
+
+/**
+ * Splits a command line into typed tokens in one pass over its characters.
+ * Quotes, escapes and $VAR expansion are resolved while scanning, operators are
+ * recognised with or without surrounding spaces, and the token arrays and word
+ * buffer are reused from one line to the next.
+ * An unquoted expansion is split into several words at the whitespace characters of
+ * IFS (space, tab and newline by default), except in an assignment and in the word of
+ * a redirection, which bash does not split either; other IFS characters do not split.
+ * Scanning stops after a list operator (;, &, && or ||), so every pipeline of a
+ * list is expanded only when the pipelines before it have run.
+ */
+public class Lexer {
+    public enum Type {
+        WORD,
+        // n>, n>>, &> and &>> followed by a target word
+        REDIRECT,
+        // n>&m
+        DUPLICATE,
+        // n< followed by a source word
+        INPUT,
+        // <<< followed by the text word
+        HERE_STRING,
+        // << and <<- followed by the delimiter word, the body follows the line
+        HERE_DOC,
+        PIPE,
+        AND,
+        OR,
+        SEMICOLON,
+        BACKGROUND
+    }
+
+    // file descriptor of a redirection that moves stdout and stderr together
+    public static final int BOTH = -1;
+
+    // where unquoted expansions are split when IFS is unset
+    private static final String DEFAULT_IFS = " \t\n";
+
+    private final Environment environment;
+
+    private Type[] types = new Type[16];
+    private String[] words = new String[16];
+    private int[] fds = new int[16];
+    private int[] targetFds = new int[16];
+    private boolean[] appends = new boolean[16];
+    private boolean[] quoted = new boolean[16];
+    private int count;
+
+    // where the scanned pipeline's text ends and where the next one starts
+    private int textEnd;
+    private int end;
+
+    private final StringBuilder word = new StringBuilder();
+    // a quoted empty string is still a word
+    private boolean wordStarted;
+    // digits only count as a redirection's descriptor when they were typed unquoted
+    private boolean wordQuoted;
+    // set by lexStructure(): variables are not looked up and each one counts as a word
+    private boolean structureOnly;
+
+    public Lexer(Environment environment) {
+        this.environment = environment;
+    }
+
+    /**
+     * Tokenize a whole line that holds no list operators, replacing the previous tokens
+     */
+    public void lex(String input) {
+        lex(input, 0);
+    }
+
+    /**
+     * Tokenize from `start` up to and including the next list operator, replacing the
+     * previous tokens. end() tells where to continue.
+     */
+    public void lex(String input, int start) {
+        structureOnly = false;
+        scan(input, start);
+    }
+
+    /**
+     * Like lex(), but for checking where operators and words are before anything has run:
+     * no variable is looked up, so an expansion is a word whatever its value will be
+     */
+    public void lexStructure(String input, int start) {
+        structureOnly = true;
+        scan(input, start);
+    }
+
+    private void scan(String input, int start) {
+        count = 0;
+        resetWord();
+        boolean inSingleQuote = false;
+        boolean inDoubleQuote = false;
+        int length = input.length();
+        textEnd = length;
+        end = length;
+
+        for (int i = start; i < length; i++) {
+            char c = input.charAt(i);
+
+            // Handle escape character (\)
+            if (c == '\\' && i < length - 1) {
+                char nextChar = input.charAt(i + 1);
+
+                // single quotes -> literal backslashes
+                if (inSingleQuote) {
+                    word.append('\\');
+                } else if (inDoubleQuote) {
+                    if (nextChar == '"' || nextChar == '\\' || nextChar == '$') {
+                        word.append(nextChar);
+                    } else {
+                        word.append(c).append(nextChar);
+                    }
+                    i++;
+                } else {
+                    word.append(nextChar);
+                    wordQuoted = true;
+                    i++;
+                }
+                wordStarted = true;
+                continue;
+            }
+
+            // Handle single and double quotes
+            if (c == '\'' && !inDoubleQuote) {
+                inSingleQuote = !inSingleQuote;
+                wordStarted = true;
+                wordQuoted = true;
+                continue;
+            } else if (c == '"' && !inSingleQuote) {
+                inDoubleQuote = !inDoubleQuote;
+                wordStarted = true;
+                wordQuoted = true;
+                continue;
+            }
+
+            // variables expand everywhere except inside single quotes
+            if (c == '$' && !inSingleQuote) {
+                i = expandVariable(input, i, !inDoubleQuote && splits());
+                continue;
+            }
+
+            if (inSingleQuote || inDoubleQuote) {
+                word.append(c);
+                wordStarted = true;
+                continue;
+            }
+
+            char next = i + 1 < length ? input.charAt(i + 1) : 0;
+            switch (c) {
+                case ' ':
+                case '\t':
+                    endWord();
+                    break;
+                case '|':
+                    endWord();
+                    if (next == '|') {
+                        add(Type.OR, "||");
+                        stopAt(i, i + 2);
+                        return;
+                    }
+                    add(Type.PIPE, "|");
+                    break;
+                case ';':
+                    endWord();
+                    add(Type.SEMICOLON, ";");
+                    stopAt(i, i + 1);
+                    return;
+                case '&':
+                    endWord();
+                    if (next == '>') {
+                        // &> and &>> send both streams to one file
+                        boolean append = i + 2 < length && input.charAt(i + 2) == '>';
+                        addRedirect(BOTH, append);
+                        i += append ? 2 : 1;
+                        break;
+                    }
+                    if (next == '&') {
+                        add(Type.AND, "&&");
+                        stopAt(i, i + 2);
+                    } else {
+                        add(Type.BACKGROUND, "&");
+                        stopAt(i, i + 1);
+                    }
+                    return;
+                case '>':
+                    i = redirect(input, i);
+                    break;
+                case '<':
+                    i = inputRedirect(input, i);
+                    break;
+                default:
+                    word.append(c);
+                    wordStarted = true;
+            }
+        }
+        endWord();
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Index just past the scanned pipeline's text, before its list operator
+     */
+    public int textEnd() {
+        return textEnd;
+    }
+
+    /**
+     * Index where scanning stopped, after the list operator if there was one
+     */
+    public int end() {
+        return end;
+    }
+
+    public Type type(int index) {
+        return types[index];
+    }
+
+    /**
+     * The text of a word, or the spelling of an operator
+     */
+    public String text(int index) {
+        return words[index];
+    }
+
+    /**
+     * Whether a word was quoted or escaped anywhere, which keeps a here-document literal
+     */
+    public boolean isQuoted(int index) {
+        return quoted[index];
+    }
+
+    /**
+     * The descriptor a redirection applies to: 1, 2 or BOTH for output, 0 unless typed otherwise for input
+     */
+    public int fd(int index) {
+        return fds[index];
+    }
+
+    /**
+     * The descriptor a DUPLICATE copies from
+     */
+    public int targetFd(int index) {
+        return targetFds[index];
+    }
+
+    public boolean isAppend(int index) {
+        return appends[index];
+    }
+
+    /**
+     * Scan an operator starting with > whose optional descriptor is the word typed so far.
+     * Returns the index of its last character.
+     */
+    private int redirect(String input, int i) {
+        int fd = 1;
+        if (wordStarted && !wordQuoted && isDigits(word)) {
+            fd = Integer.parseInt(word, 0, word.length(), 10);
+            resetWord();
+        } else {
+            endWord();
+        }
+
+        int length = input.length();
+        if (i + 1 < length && input.charAt(i + 1) == '&') {
+            // n>&m duplicates a descriptor, >& file is the same as &>
+            int digitsEnd = i + 2;
+            while (digitsEnd < length && digitsEnd < i + 6 && Character.isDigit(input.charAt(digitsEnd))) {
+                digitsEnd++;
+            }
+            if (digitsEnd > i + 2) {
+                int targetFd = Integer.parseInt(input, i + 2, digitsEnd, 10);
+                add(Type.DUPLICATE, (fd == 1 ? "" : Integer.toString(fd)) + ">&" + targetFd);
+                fds[count - 1] = fd;
+                targetFds[count - 1] = targetFd;
+                return digitsEnd - 1;
+            }
+            addRedirect(BOTH, false);
+            return i + 1;
+        }
+
+        boolean append = i + 1 < length && input.charAt(i + 1) == '>';
+        addRedirect(fd, append);
+        return append ? i + 1 : i;
+    }
+
+    /**
+     * Scan <, <<, <<- or <<< whose optional descriptor is the word typed so far.
+     * Returns the index of its last character.
+     */
+    private int inputRedirect(String input, int i) {
+        int fd = 0;
+        if (wordStarted && !wordQuoted && isDigits(word)) {
+            fd = Integer.parseInt(word, 0, word.length(), 10);
+            resetWord();
+        } else {
+            endWord();
+        }
+
+        String prefix = fd == 0 ? "" : Integer.toString(fd);
+        int length = input.length();
+        int last = i;
+        if (i + 1 < length && input.charAt(i + 1) == '<') {
+            char third = i + 2 < length ? input.charAt(i + 2) : 0;
+            if (third == '<') {
+                add(Type.HERE_STRING, prefix + "<<<");
+                last = i + 2;
+            } else if (third == '-') {
+                add(Type.HERE_DOC, prefix + "<<-");
+                last = i + 2;
+            } else {
+                add(Type.HERE_DOC, prefix + "<<");
+                last = i + 1;
+            }
+        } else {
+            add(Type.INPUT, prefix + "<");
+        }
+        fds[count - 1] = fd;
+        return last;
+    }
+
+    /**
+     * Expand $NAME, ${NAME} and $? in the body of a here-document, where a backslash only
+     * escapes $, ` and itself
+     */
+    public String expand(String text) {
+        resetWord();
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == '\\' && i + 1 < length && "$`\\".indexOf(text.charAt(i + 1)) >= 0) {
+                word.append(text.charAt(++i));
+            } else if (c == '$') {
+                i = expandVariable(text, i, false);
+            } else {
+                word.append(c);
+            }
+        }
+        String expanded = word.toString();
+        resetWord();
+        return expanded;
+    }
+
+    private void stopAt(int operatorStart, int next) {
+        textEnd = operatorStart;
+        end = next;
+    }
+
+    private void addRedirect(int fd, boolean append) {
+        String spelling = (fd == BOTH ? "&" : fd == 1 ? "" : Integer.toString(fd)) + (append ? ">>" : ">");
+        add(Type.REDIRECT, spelling);
+        fds[count - 1] = fd;
+        appends[count - 1] = append;
+    }
+
+    private int expandVariable(String input, int start, boolean split) {
+        int nameStart = start + 1;
+        int nameEnd;
+        int last;
+        if (nameStart < input.length() && input.charAt(nameStart) == '{') {
+            int close = input.indexOf('}', nameStart);
+            if (close < 0) {
+                word.append('$');
+                wordStarted = true;
+                return start;
+            }
+            nameStart++;
+            nameEnd = close;
+            last = close;
+        } else if (nameStart < input.length() && input.charAt(nameStart) == '?') {
+            // the one special parameter: $?
+            nameEnd = nameStart + 1;
+            last = nameStart;
+        } else {
+            nameEnd = nameStart;
+            while (nameEnd < input.length()
+                    && (Character.isLetterOrDigit(input.charAt(nameEnd)) || input.charAt(nameEnd) == '_')) {
+                nameEnd++;
+            }
+            last = nameEnd - 1;
+        }
+
+        if (nameEnd == nameStart) {
+            word.append('$');
+            wordStarted = true;
+            return start;
+        }
+        if (structureOnly) {
+            wordStarted = true;
+            return last;
+        }
+        String value = environment.get(input.substring(nameStart, nameEnd));
+        if (value == null || value.isEmpty()) {
+            return last;
+        }
+        if (!split) {
+            word.append(value);
+            wordStarted = true;
+            return last;
+        }
+        String separators = environment.get("IFS");
+        if (separators == null) {
+            separators = DEFAULT_IFS;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (separators.indexOf(c) >= 0 && Character.isWhitespace(c)) {
+                endWord();
+            } else {
+                word.append(c);
+                wordStarted = true;
+            }
+        }
+        return last;
+    }
+
+    /**
+     * Whether an unquoted expansion in the word being scanned is split: not in the word
+     * of a redirection, nor in a NAME=value at the start of a command
+     */
+    private boolean splits() {
+        if (count > 0 && takesWord(types[count - 1])) {
+            return false;
+        }
+        boolean commandStart = count == 0 || types[count - 1] == Type.PIPE;
+        int equals = commandStart ? word.indexOf("=") : -1;
+        return equals <= 0 || !Environment.isValidName(word.substring(0, equals));
+    }
+
+    private void endWord() {
+        if (wordStarted) {
+            add(Type.WORD, word.toString());
+            quoted[count - 1] = wordQuoted;
+        }
+        resetWord();
+    }
+
+    private void resetWord() {
+        word.setLength(0);
+        wordStarted = false;
+        wordQuoted = false;
+    }
+
+    private void add(Type type, String text) {
+        if (count == types.length) {
+            int capacity = count * 2;
+            types = Arrays.copyOf(types, capacity);
+            words = Arrays.copyOf(words, capacity);
+            fds = Arrays.copyOf(fds, capacity);
+            targetFds = Arrays.copyOf(targetFds, capacity);
+            appends = Arrays.copyOf(appends, capacity);
+            quoted = Arrays.copyOf(quoted, capacity);
+        }
+        types[count] = type;
+        words[count] = text;
+        fds[count] = 0;
+        targetFds[count] = 0;
+        appends[count] = false;
+        quoted[count] = false;
+        count++;
+    }
+
+    private static boolean takesWord(Type type) {
+        return type == Type.REDIRECT || type == Type.INPUT || type == Type.HERE_STRING || type == Type.HERE_DOC;
+    }
+
+    private static boolean isDigits(CharSequence text) {
+        // descriptors are small numbers, anything longer is an ordinary word
+        if (text.length() == 0 || text.length() > 4) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (!Character.isDigit(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
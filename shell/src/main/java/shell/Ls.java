@@ -0,0 +1,161 @@
+package shell;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * The ls builtin for name listings, one per line, with -1, -a and -A. That is what ls
+ * prints into a pipe or a file; onto an interactive terminal it lays out columns, so
+ * there, as for long listings and any other option, the real ls runs. Names are sorted
+ * by code point, which only matches ls in the C locale, so other collations run ls too.
+ * Whether output goes to an interactive terminal is up to the session's console: in a
+ * daemon session that is the client's terminal, which the real ls only sees as a pipe.
+ */
+public class Ls implements Builtin {
+    private final Environment environment;
+    private final Console console;
+    private final Supplier<Path> directory;
+    private final Builtin fallback;
+
+    public Ls(Environment environment, Console console, Supplier<Path> directory, Builtin fallback) {
+        this.environment = environment;
+        this.console = console;
+        this.directory = directory;
+        this.fallback = fallback;
+    }
+
+    @Override
+    public int run(List<String> arguments, InputStream in, OutputStream out, PrintStream err) throws IOException {
+        boolean all = false;
+        boolean almostAll = false;
+        List<String> operands = new ArrayList<>();
+        boolean options = true;
+        for (String argument : arguments.subList(1, arguments.size())) {
+            if (!options || argument.equals("-") || !argument.startsWith("-")) {
+                operands.add(argument);
+            } else if (argument.equals("--")) {
+                options = false;
+            } else if (argument.equals("--all")) {
+                all = true;
+            } else if (argument.equals("--almost-all")) {
+                almostAll = true;
+            } else if (argument.startsWith("--")) {
+                return fallback.run(arguments, in, out, err);
+            } else {
+                for (int i = 1; i < argument.length(); i++) {
+                    char option = argument.charAt(i);
+                    if (option == 'a') {
+                        all = true;
+                    } else if (option == 'A') {
+                        almostAll = true;
+                    } else if (option != '1') {
+                        return fallback.run(arguments, in, out, err);
+                    }
+                }
+            }
+        }
+        boolean terminal = console.terminal().isInteractive() && console.isOutput(out);
+        if (terminal && console.isForwarded()) {
+            // the columns it would lay out on the client's terminal, ahead of the user's own options
+            List<String> columns = new ArrayList<>(arguments);
+            columns.addAll(1, List.of("-C", "-w", Integer.toString(console.terminal().columns())));
+            return fallback.run(columns, in, out, err);
+        }
+        if (terminal || !isByteOrderCollation()) {
+            return fallback.run(arguments, in, out, err);
+        }
+        if (operands.isEmpty()) {
+            operands.add(".");
+        }
+
+        // like ls: missing operands are reported first, then plain files, then each directory
+        Path workingDirectory = directory.get();
+        int status = 0;
+        List<String> files = new ArrayList<>();
+        List<String> directories = new ArrayList<>();
+        for (String operand : operands) {
+            Path path = workingDirectory.resolve(operand);
+            if (Files.isDirectory(path)) {
+                directories.add(operand);
+            } else if (Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+                files.add(operand);
+            } else {
+                err.println("ls: cannot access '" + operand + "': No such file or directory");
+                status = 2;
+            }
+        }
+        Collections.sort(files);
+        Collections.sort(directories);
+
+        StringBuilder listing = new StringBuilder();
+        for (String file : files) {
+            listing.append(file).append('\n');
+        }
+        boolean headers = operands.size() > 1;
+        for (String name : directories) {
+            List<String> entries;
+            try {
+                entries = list(workingDirectory.resolve(name), all, almostAll);
+            } catch (IOException e) {
+                err.println("ls: cannot open directory '" + name + "': " + Chunks.reason(e));
+                status = 2;
+                continue;
+            }
+            if (listing.length() > 0) {
+                listing.append('\n');
+            }
+            if (headers) {
+                listing.append(name).append(":\n");
+            }
+            for (String entry : entries) {
+                listing.append(entry).append('\n');
+            }
+        }
+        out.write(listing.toString().getBytes(StandardCharsets.UTF_8));
+        return status;
+    }
+
+    private static List<String> list(Path path, boolean all, boolean almostAll) throws IOException {
+        List<String> entries = new ArrayList<>();
+        if (all) {
+            entries.add(".");
+            entries.add("..");
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(path)) {
+            for (Path entry : stream) {
+                String name = entry.getFileName().toString();
+                if (all || almostAll || name.charAt(0) != '.') {
+                    entries.add(name);
+                }
+            }
+        }
+        Collections.sort(entries);
+        return entries;
+    }
+
+    /**
+     * Whether the locale sorts names by their bytes, as the C and POSIX locales do
+     */
+    private boolean isByteOrderCollation() {
+        String locale = environment.get("LC_ALL");
+        if (locale == null || locale.isEmpty()) {
+            locale = environment.get("LC_COLLATE");
+        }
+        if (locale == null || locale.isEmpty()) {
+            locale = environment.get("LANG");
+        }
+        return locale == null || locale.isEmpty() || locale.equals("C") || locale.equals("POSIX")
+                || locale.startsWith("C.");
+    }
+}
@@ -0,0 +1,14 @@
+package shell;
+
+import java.nio.file.Paths;
+
+public class Main {
+    public static void main(String[] args) throws Exception {
+        Environment environment = Environment.fromSystem();
+        Shell shell = new Shell(Console.system(), environment, new PathIndex(environment),
+                Paths.get(System.getProperty("user.dir")));
+        // history and stats are saved however the process ends
+        Runtime.getRuntime().addShutdownHook(new Thread(shell::flush, "shell-flush"));
+        System.exit(shell.run(args.length > 0 ? args[0] : null));
+    }
+}
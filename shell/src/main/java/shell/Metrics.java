@@ -0,0 +1,157 @@
+package shell;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Opt-in latency histograms for the stages of running a command. Setting JAVA_SHELL_STATS
+ * to a file name turns recording on and names the JSON file written at exit; otherwise
+ * every call is a flag check and nothing is timed.
+ */
+public class Metrics {
+    public enum Stage {
+        // building the candidate list for Tab
+        COMPLETION("completion"),
+        // resolving a command name to its executable
+        LOOKUP("lookup"),
+        // starting a child process
+        SPAWN("spawn"),
+        // a child running, from start to exit
+        CHILD("child"),
+        // a builtin writing into redirected files, from opening them to the last flush
+        REDIRECT("redirect");
+
+        private final String label;
+
+        Stage(String label) {
+            this.label = label;
+        }
+
+        public String label() {
+            return label;
+        }
+    }
+
+    private final Path dumpFile;
+    private final Map<Stage, Histogram> histograms = new EnumMap<>(Stage.class);
+
+    public Metrics(Path dumpFile) {
+        this.dumpFile = dumpFile;
+        for (Stage stage : Stage.values()) {
+            histograms.put(stage, new Histogram());
+        }
+    }
+
+    /**
+     * Recording is on when JAVA_SHELL_STATS names the file for the dump at exit
+     */
+    public static Metrics fromEnvironment(Environment environment, Path directory) {
+        String file = environment.get("JAVA_SHELL_STATS");
+        return new Metrics(file == null || file.isEmpty() ? null : directory.resolve(file));
+    }
+
+    public boolean isEnabled() {
+        return dumpFile != null;
+    }
+
+    /**
+     * Start timing a stage: the current time when recording, 0 otherwise
+     */
+    public long start() {
+        return dumpFile != null ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Record the time since a start() in a stage's histogram
+     */
+    public void record(Stage stage, long start) {
+        if (dumpFile != null) {
+            histograms.get(stage).record(System.nanoTime() - start);
+        }
+    }
+
+    public Histogram histogram(Stage stage) {
+        return histograms.get(stage);
+    }
+
+    public void reset() {
+        for (Histogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * One line per stage with its count and latency percentiles
+     */
+    public String table() {
+        StringBuilder table = new StringBuilder(String.format("%-10s %8s %9s %9s %9s %9s %9s%n",
+                "stage", "count", "mean", "p50", "p90", "p99", "max"));
+        for (Stage stage : Stage.values()) {
+            Histogram histogram = histograms.get(stage);
+            table.append(String.format("%-10s %8d %9s %9s %9s %9s %9s%n", stage.label(), histogram.count(),
+                    duration(histogram.mean()), duration(histogram.percentile(0.5)),
+                    duration(histogram.percentile(0.9)), duration(histogram.percentile(0.99)),
+                    duration(histogram.max())));
+        }
+        return table.toString();
+    }
+
+    /**
+     * Every histogram as JSON: summary values and the non-empty buckets, all in nanoseconds
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{\n");
+        Stage[] stages = Stage.values();
+        for (int i = 0; i < stages.length; i++) {
+            Histogram histogram = histograms.get(stages[i]);
+            json.append("  \"").append(stages[i].label()).append("\": {")
+                    .append("\"count\": ").append(histogram.count())
+                    .append(", \"min_ns\": ").append(histogram.min())
+                    .append(", \"mean_ns\": ").append(histogram.mean())
+                    .append(", \"p50_ns\": ").append(histogram.percentile(0.5))
+                    .append(", \"p90_ns\": ").append(histogram.percentile(0.9))
+                    .append(", \"p99_ns\": ").append(histogram.percentile(0.99))
+                    .append(", \"max_ns\": ").append(histogram.max())
+                    .append(", \"buckets\": [");
+            long[][] buckets = histogram.buckets();
+            for (int b = 0; b < buckets.length; b++) {
+                json.append(b == 0 ? "" : ", ").append('[').append(buckets[b][0]).append(", ")
+                        .append(buckets[b][1]).append(']');
+            }
+            json.append("]}").append(i + 1 < stages.length ? ",\n" : "\n");
+        }
+        return json.append("}\n").toString();
+    }
+
+    /**
+     * Write the JSON dump, if recording is on
+     */
+    public void dump() {
+        if (dumpFile == null) {
+            return;
+        }
+        try {
+            Files.write(dumpFile, toJson().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            System.err.println("stats: " + dumpFile + ": " + Chunks.reason(e));
+        }
+    }
+
+    private static String duration(long nanos) {
+        if (nanos < 1_000) {
+            return nanos + "ns";
+        }
+        if (nanos < 1_000_000) {
+            return String.format(Locale.ROOT, "%.1fus", nanos / 1e3);
+        }
+        if (nanos < 1_000_000_000) {
+            return String.format(Locale.ROOT, "%.1fms", nanos / 1e6);
+        }
+        return String.format(Locale.ROOT, "%.2fs", nanos / 1e9);
+    }
+}
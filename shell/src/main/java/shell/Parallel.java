@@ -0,0 +1,276 @@
+package shell;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * The parallel builtin: runs one external command per input on a bounded pool.
+ *
+ * <pre>
+ * parallel [-j N] [-k] command [args...] ::: input...
+ * producer | parallel [-j N] [-k] command [args...]
+ * </pre>
+ *
+ * Every {} in the command is replaced by the input, otherwise the input is appended.
+ * Each job's output is spooled to temporary files and written out in one piece when
+ * the job finishes, in completion order or, with -k, in input order.
+ */
+public class Parallel implements Builtin {
+    private static final String INPUT_SEPARATOR = ":::";
+    private static final String PLACEHOLDER = "{}";
+
+    /**
+     * Exit status and spooled output of one job
+     */
+    private static class JobResult {
+        final List<String> command;
+        final int status;
+        final Path stdout;
+        final Path stderr;
+
+        JobResult(List<String> command, int status, Path stdout, Path stderr) {
+            this.command = command;
+            this.status = status;
+            this.stdout = stdout;
+            this.stderr = stderr;
+        }
+    }
+
+    private final Launcher launcher;
+    private final Supplier<Path> directory;
+
+    public Parallel(Launcher launcher, Supplier<Path> directory) {
+        this.launcher = launcher;
+        this.directory = directory;
+    }
+
+    @Override
+    public int run(List<String> arguments, InputStream in, OutputStream out, PrintStream err) throws IOException {
+        int jobs = Runtime.getRuntime().availableProcessors();
+        boolean keepOrder = false;
+
+        int i = 1;
+        for (; i < arguments.size() && arguments.get(i).startsWith("-"); i++) {
+            String option = arguments.get(i);
+            try {
+                if (option.equals("-k") || option.equals("--keep-order")) {
+                    keepOrder = true;
+                } else if ((option.equals("-j") || option.equals("--jobs")) && i + 1 < arguments.size()) {
+                    jobs = Integer.parseInt(arguments.get(++i));
+                } else if (option.startsWith("-j")) {
+                    jobs = Integer.parseInt(option.substring(2));
+                } else {
+                    err.println("parallel: unknown option " + option);
+                    return 2;
+                }
+            } catch (NumberFormatException e) {
+                err.println("parallel: invalid job count");
+                return 2;
+            }
+        }
+
+        int separator = arguments.subList(i, arguments.size()).indexOf(INPUT_SEPARATOR);
+        List<String> template = separator < 0 ? arguments.subList(i, arguments.size())
+                : arguments.subList(i, i + separator);
+        if (template.isEmpty() || jobs < 1) {
+            err.println("parallel: usage: parallel [-j N] [-k] command [args...] ::: input...");
+            return 2;
+        }
+        if (!launcher.isCommand(template.get(0))) {
+            err.println("parallel: " + template.get(0) + ": command not found");
+            return 127;
+        }
+
+        List<String> inputs = separator < 0 ? readInputs(in)
+                : arguments.subList(i + separator + 1, arguments.size());
+        if (inputs.isEmpty()) {
+            return 0;
+        }
+
+        Path workingDirectory = directory.get();
+        List<ProcessBuilder> builders = new ArrayList<>();
+        for (String input : inputs) {
+            ProcessBuilder pb = launcher.builder(expand(template, input), workingDirectory);
+            if (pb == null) {
+                // the command disappeared after the check above
+                err.println("parallel: " + template.get(0) + ": command not found");
+                return 127;
+            }
+            builders.add(pb);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(jobs, inputs.size()), runnable -> {
+            Thread thread = new Thread(runnable, "parallel");
+            thread.setDaemon(true);
+            return thread;
+        });
+        CompletionService<JobResult> completion = new ExecutorCompletionService<>(pool);
+        List<Future<JobResult>> submitted = new ArrayList<>();
+        // children still running, destroyed if we give up on them
+        Set<Process> running = ConcurrentHashMap.newKeySet();
+        for (ProcessBuilder pb : builders) {
+            submitted.add(completion.submit(() -> runJob(pb, running)));
+        }
+
+        int failed = 0;
+        try {
+            for (int k = 0; k < submitted.size(); k++) {
+                Future<JobResult> next = keepOrder ? submitted.get(k) : completion.take();
+                JobResult result = next.get();
+                try {
+                    copyFile(result.stdout, out);
+                    out.flush();
+                    copyFile(result.stderr, err);
+                    err.flush();
+                } finally {
+                    Files.deleteIfExists(result.stdout);
+                    Files.deleteIfExists(result.stderr);
+                }
+                if (result.status != 0) {
+                    err.println("parallel: " + String.join(" ", result.command) + " exited with status "
+                            + result.status);
+                    failed++;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 130;
+        } catch (ExecutionException e) {
+            err.println("parallel: " + e.getCause().getMessage());
+            return 1;
+        } finally {
+            pool.shutdownNow();
+            for (Process process : running) {
+                process.destroy();
+            }
+            // spool files of jobs that finished but were never written out
+            for (Future<JobResult> future : submitted) {
+                discard(future);
+            }
+        }
+
+        // like GNU parallel, the status is the number of failed jobs, capped at 101
+        return Math.min(failed, 101);
+    }
+
+    private static List<String> readInputs(InputStream in) throws IOException {
+        List<String> inputs = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (!line.isEmpty()) {
+                inputs.add(line);
+            }
+        }
+        return inputs;
+    }
+
+    private static List<String> expand(List<String> template, String input) {
+        List<String> command = new ArrayList<>();
+        boolean substituted = false;
+        for (String part : template) {
+            if (part.contains(PLACEHOLDER)) {
+                command.add(part.replace(PLACEHOLDER, input));
+                substituted = true;
+            } else {
+                command.add(part);
+            }
+        }
+        if (!substituted) {
+            command.add(input);
+        }
+        return command;
+    }
+
+    private JobResult runJob(ProcessBuilder pb, Set<Process> running) throws IOException, InterruptedException {
+        Path stdout = Files.createTempFile("parallel", ".out");
+        Path stderr = Files.createTempFile("parallel", ".err");
+        pb.redirectInput(ProcessBuilder.Redirect.from(new File("/dev/null")));
+        pb.redirectOutput(stdout.toFile());
+        pb.redirectError(stderr.toFile());
+        Process process = null;
+        try {
+            try {
+                process = launcher.start(pb);
+            } catch (Launcher.StartFailure e) {
+                // reported with the job's own output, like the error a started child would print
+                Files.writeString(stderr, e.getMessage() + "\n");
+                return new JobResult(pb.command(), e.status(), stdout, stderr);
+            }
+            running.add(process);
+            return new JobResult(pb.command(), process.waitFor(), stdout, stderr);
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            if (process != null) {
+                process.destroy();
+            }
+            Files.deleteIfExists(stdout);
+            Files.deleteIfExists(stderr);
+            throw e;
+        } finally {
+            if (process != null) {
+                running.remove(process);
+            }
+        }
+    }
+
+    /**
+     * Delete the spool files of a job that has finished, whether or not they were written out
+     */
+    private static void discard(Future<JobResult> future) throws IOException {
+        if (!future.isDone() || future.isCancelled()) {
+            return;
+        }
+        JobResult result;
+        try {
+            result = future.get();
+        } catch (InterruptedException | ExecutionException e) {
+            return;
+        }
+        Files.deleteIfExists(result.stdout);
+        Files.deleteIfExists(result.stderr);
+    }
+
+    /**
+     * Copy a spooled file in one piece, letting the kernel move it when the target is a channel
+     */
+    private static void copyFile(Path file, OutputStream out) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                return;
+            }
+            if (out instanceof ChannelOutputStream) {
+                WritableByteChannel target = ((ChannelOutputStream) out).channel();
+                long position = 0;
+                while (position < size) {
+                    position += channel.transferTo(position, size - position, target);
+                }
+            } else {
+                Channels.newInputStream(channel).transferTo(out);
+            }
+        }
+    }
+}
@@ -0,0 +1,371 @@
+package shell;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Builds commands straight from the lexer's tokens: words become arguments and
+ * redirection tokens are applied to the command they appear in.
+ * A line is a list of pipelines joined by ;, &, && and ||. They are handed out one
+ * at a time, so each pipeline is expanded after the ones before it have run.
+ * check() refuses a malformed line as a whole before its first pipeline runs.
+ * A pipeline may start with the `time` keyword, which times all of its stages together.
+ * Here-document bodies are the lines after the command line; the caller reads them
+ * first, using hereDocuments(), and hands them over with the line.
+ */
+public class Parser {
+    /**
+     * A command line that cannot be run, with bash's wording
+     */
+    public static class SyntaxError extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        public SyntaxError(String token) {
+            super("syntax error near unexpected token `" + token + "'");
+        }
+    }
+
+    /**
+     * When a pipeline runs, given the status of the one before it
+     */
+    public enum Condition {
+        ALWAYS,
+        // after &&
+        IF_SUCCESS,
+        // after ||
+        IF_FAILURE
+    }
+
+    /**
+     * A here-document opened by a line, whose body runs up to a line holding only the delimiter
+     */
+    public static class HereDocument {
+        private final String delimiter;
+        private final boolean stripTabs;
+
+        HereDocument(String delimiter, boolean stripTabs) {
+            this.delimiter = delimiter;
+            this.stripTabs = stripTabs;
+        }
+
+        public String delimiter() {
+            return delimiter;
+        }
+
+        /**
+         * Whether leading tabs are removed from the body lines and the delimiter line (<<-)
+         */
+        public boolean stripTabs() {
+            return stripTabs;
+        }
+    }
+
+    // the keyword that times a whole pipeline, only as its first unquoted word
+    public static final String TIME = "time";
+
+    private final Lexer lexer;
+
+    private String input = "";
+    private int position;
+    private Condition nextCondition = Condition.ALWAYS;
+    private List<String> hereBodies = Collections.emptyList();
+    private int nextHereBody;
+
+    // describe the pipeline returned by the last call to next()
+    private Condition condition = Condition.ALWAYS;
+    private boolean background;
+    private boolean timed;
+    private String text = "";
+
+    public Parser(Environment environment) {
+        this.lexer = new Lexer(environment);
+    }
+
+    /**
+     * Start on a new line
+     */
+    public void begin(String line) {
+        begin(line, Collections.emptyList());
+    }
+
+    /**
+     * Start on a new line, with the bodies of its here-documents in order
+     */
+    public void begin(String line, List<String> bodies) {
+        input = line;
+        position = 0;
+        nextCondition = Condition.ALWAYS;
+        hereBodies = bodies;
+        nextHereBody = 0;
+    }
+
+    /**
+     * The here-documents a line opens, in order, so their bodies can be read before it runs
+     */
+    public List<HereDocument> hereDocuments(String line) {
+        // most lines have none, and need no second scan
+        if (line.indexOf("<<") < 0) {
+            return Collections.emptyList();
+        }
+        List<HereDocument> documents = new ArrayList<>();
+        int start = 0;
+        while (start < line.length()) {
+            lexer.lex(line, start);
+            for (int i = 0; i + 1 < lexer.size(); i++) {
+                if (lexer.type(i) == Lexer.Type.HERE_DOC && lexer.type(i + 1) == Lexer.Type.WORD) {
+                    documents.add(new HereDocument(lexer.text(i + 1), lexer.text(i).endsWith("-")));
+                }
+            }
+            start = lexer.end();
+        }
+        return documents;
+    }
+
+    /**
+     * Whether the line has another pipeline. A line ending in && or || is an error from next().
+     */
+    public boolean hasNext() {
+        while (position < input.length() && (input.charAt(position) == ' ' || input.charAt(position) == '\t')) {
+            position++;
+        }
+        return position < input.length() || nextCondition != Condition.ALWAYS;
+    }
+
+    /**
+     * Parse the first pipeline of a line on its own, empty for a blank line
+     */
+    public List<Command> parse(String line) throws SyntaxError {
+        begin(line);
+        return hasNext() ? next() : new ArrayList<>();
+    }
+
+    /**
+     * Parse the next pipeline of the line into its stages
+     */
+    public List<Command> next() throws SyntaxError {
+        int start = position;
+        lexer.lex(input, start);
+        position = lexer.end();
+        condition = nextCondition;
+        nextCondition = Condition.ALWAYS;
+        background = false;
+        timed = isTimePrefix();
+        text = input.substring(start, lexer.textEnd()).trim();
+
+        List<Command> stages = new ArrayList<>();
+        Command command = new Command();
+        int size = lexer.size();
+        for (int i = timed ? 1 : 0; i < size; i++) {
+            switch (lexer.type(i)) {
+                case WORD:
+                    command.addArgument(lexer.text(i));
+                    break;
+                case REDIRECT:
+                    checkOperand(i, size);
+                    command.redirect(lexer.fd(i), lexer.text(++i), lexer.isAppend(i - 1));
+                    break;
+                case INPUT:
+                case HERE_STRING:
+                case HERE_DOC:
+                    checkOperand(i, size);
+                    input(command, i++);
+                    break;
+                case DUPLICATE:
+                    checkOperand(i, size);
+                    if (lexer.fd(i) == 2) {
+                        command.duplicateError();
+                    } else {
+                        command.duplicateOutput();
+                    }
+                    break;
+                case PIPE:
+                    if (command.isEmpty()) {
+                        throw new SyntaxError("|");
+                    }
+                    stages.add(command);
+                    command = new Command();
+                    break;
+                default:
+                    // a list operator always ends the scan and needs a pipeline before it
+                    if (command.isEmpty()) {
+                        throw new SyntaxError(lexer.text(i));
+                    }
+                    endList(lexer.type(i));
+            }
+        }
+
+        if (command.isEmpty() && !stages.isEmpty()) {
+            throw new SyntaxError("|");
+        }
+        if (size == (timed ? 1 : 0)) {
+            // && and || need a pipeline after them, a line of empty expansions does nothing,
+            // and time on its own reports the nothing it ran
+            if (condition != Condition.ALWAYS && !timed) {
+                throw new SyntaxError("newline");
+            }
+            return stages;
+        }
+        // a lone redirection is kept, it still creates its file
+        stages.add(command);
+        return stages;
+    }
+
+    /**
+     * Refuse a line whose operators are out of place before any of it runs, so
+     * `echo hi && |` does not print hi first. Only the shape is checked: variables are
+     * not expanded, since the pipelines before them may still set them.
+     */
+    public void check(String line) throws SyntaxError {
+        boolean needsPipeline = false;
+        int start = 0;
+        while (start < line.length()) {
+            lexer.lexStructure(line, start);
+            start = lexer.end();
+            int size = lexer.size();
+            if (size == 0) {
+                // only blanks were left
+                break;
+            }
+            boolean hasWord = false;
+            boolean afterPipe = false;
+            for (int i = isTimePrefix() ? 1 : 0; i < size; i++) {
+                switch (lexer.type(i)) {
+                    case WORD:
+                        hasWord = true;
+                        break;
+                    case REDIRECT:
+                    case INPUT:
+                    case HERE_STRING:
+                    case HERE_DOC:
+                        checkOperand(i++, size);
+                        break;
+                    case DUPLICATE:
+                        checkOperand(i, size);
+                        break;
+                    case PIPE:
+                        if (!hasWord) {
+                            throw new SyntaxError("|");
+                        }
+                        hasWord = false;
+                        afterPipe = true;
+                        break;
+                    default:
+                        if (!hasWord) {
+                            throw new SyntaxError(lexer.text(i));
+                        }
+                }
+            }
+            if (afterPipe && !hasWord) {
+                throw new SyntaxError("|");
+            }
+            Lexer.Type last = lexer.type(size - 1);
+            needsPipeline = last == Lexer.Type.AND || last == Lexer.Type.OR;
+        }
+        if (needsPipeline) {
+            throw new SyntaxError("newline");
+        }
+    }
+
+    /**
+     * Whether the scanned pipeline starts with the time keyword
+     */
+    private boolean isTimePrefix() {
+        return lexer.size() > 0 && lexer.type(0) == Lexer.Type.WORD && !lexer.isQuoted(0)
+                && lexer.text(0).equals(TIME);
+    }
+
+    /**
+     * Check the redirection at token i: its word must follow and its descriptors must be ones a command has
+     */
+    private void checkOperand(int i, int size) throws SyntaxError {
+        switch (lexer.type(i)) {
+            case DUPLICATE:
+                // only stderr onto stdout and stdout onto stderr can be expressed as a shared stream
+                if (!(lexer.fd(i) == 2 && lexer.targetFd(i) == 1) && !(lexer.fd(i) == 1 && lexer.targetFd(i) == 2)) {
+                    throw new SyntaxError(lexer.text(i));
+                }
+                return;
+            case REDIRECT:
+                if (i + 1 == size || lexer.type(i + 1) != Lexer.Type.WORD) {
+                    throw new SyntaxError(i + 1 == size ? "newline" : lexer.text(i + 1));
+                }
+                // descriptors other than stdout and stderr are not available to commands
+                if (lexer.fd(i) != 1 && lexer.fd(i) != 2 && lexer.fd(i) != Lexer.BOTH) {
+                    throw new SyntaxError(lexer.text(i));
+                }
+                return;
+            default:
+                if (i + 1 == size || lexer.type(i + 1) != Lexer.Type.WORD) {
+                    throw new SyntaxError(i + 1 == size ? "newline" : lexer.text(i + 1));
+                }
+                // only stdin can be read from
+                if (lexer.fd(i) != 0) {
+                    throw new SyntaxError(lexer.text(i));
+                }
+        }
+    }
+
+    /**
+     * Apply the input redirection at token i, whose word follows it
+     */
+    private void input(Command command, int i) {
+        String word = lexer.text(i + 1);
+        switch (lexer.type(i)) {
+            case INPUT:
+                command.redirectInput(word);
+                break;
+            case HERE_STRING:
+                command.inputText(word + "\n");
+                break;
+            default:
+                // a quoted delimiter keeps the body literal, otherwise variables expand in it
+                String body = nextHereBody < hereBodies.size() ? hereBodies.get(nextHereBody++) : "";
+                command.inputText(lexer.isQuoted(i + 1) ? body : lexer.expand(body));
+        }
+    }
+
+    private void endList(Lexer.Type operator) {
+        switch (operator) {
+            case BACKGROUND:
+                background = true;
+                break;
+            case AND:
+                nextCondition = Condition.IF_SUCCESS;
+                break;
+            case OR:
+                nextCondition = Condition.IF_FAILURE;
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Whether the last pipeline runs only after success (&&), only after failure (||) or always
+     */
+    public Condition condition() {
+        return condition;
+    }
+
+    /**
+     * Whether the last pipeline ended with &
+     */
+    public boolean isBackground() {
+        return background;
+    }
+
+    /**
+     * Whether the last pipeline started with the time keyword, which is not among its stages
+     */
+    public boolean isTimed() {
+        return timed;
+    }
+
+    /**
+     * Source text of the last pipeline, without its list operator
+     */
+    public String text() {
+        return text;
+    }
+}
@@ -0,0 +1,107 @@
+package shell;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Completes file and directory arguments. Directory listings are cached and only
+ * read again when the directory reports a new modification time, so repeated Tab
+ * presses in a large directory cost one stat instead of a full listing.
+ */
+public class PathCompleter {
+    // directories whose listings are kept, least recently used dropped first
+    private static final int CACHED_DIRECTORIES = 64;
+
+    /**
+     * Sorted entry names of one directory as of its modification time
+     */
+    private static class Listing {
+        final long modified;
+        final TreeSet<String> names = new TreeSet<>();
+        // filled in as entries are offered, so each one is checked at most once
+        final Map<String, Boolean> isDirectory = new HashMap<>();
+
+        Listing(long modified) {
+            this.modified = modified;
+        }
+    }
+
+    private final Environment environment;
+    private final Map<File, Listing> listings = new LinkedHashMap<File, Listing>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<File, Listing> eldest) {
+            return size() > CACHED_DIRECTORIES;
+        }
+    };
+
+    public PathCompleter(Environment environment) {
+        this.environment = environment;
+    }
+
+    /**
+     * Every completion of a partly typed path, in sorted order. Each result keeps the
+     * directory part as typed and ends with / when it names a directory.
+     */
+    public synchronized List<String> complete(Path directory, String word) {
+        int slash = word.lastIndexOf('/');
+        String typedDirectory = word.substring(0, slash + 1);
+        String prefix = word.substring(slash + 1);
+
+        File dir;
+        if (typedDirectory.isEmpty()) {
+            dir = directory.toFile();
+        } else if (typedDirectory.startsWith("~/") && environment.get("HOME") != null) {
+            dir = Paths.get(environment.get("HOME")).resolve(typedDirectory.substring(2)).normalize().toFile();
+        } else {
+            dir = directory.resolve(typedDirectory).normalize().toFile();
+        }
+
+        List<String> matches = new ArrayList<>();
+        Listing listing = listing(dir);
+        if (listing == null) {
+            return matches;
+        }
+        for (String name : listing.names.subSet(prefix, true, prefix + Character.MAX_VALUE, false)) {
+            // hidden entries only when asked for with a leading dot
+            if (name.startsWith(".") && !prefix.startsWith(".")) {
+                continue;
+            }
+            Boolean isDirectory = listing.isDirectory.get(name);
+            if (isDirectory == null) {
+                isDirectory = new File(dir, name).isDirectory();
+                listing.isDirectory.put(name, isDirectory);
+            }
+            matches.add(typedDirectory + name + (isDirectory ? "/" : ""));
+        }
+        return matches;
+    }
+
+    /**
+     * The cached listing of a directory, read again if it changed, or null if it cannot be read
+     */
+    private Listing listing(File dir) {
+        long modified = dir.lastModified();
+        Listing listing = listings.get(dir);
+        if (listing != null && listing.modified == modified) {
+            return listing;
+        }
+
+        String[] names = dir.list();
+        if (names == null) {
+            listings.remove(dir);
+            return null;
+        }
+        listing = new Listing(modified);
+        Collections.addAll(listing.names, names);
+        listings.put(dir, listing);
+        return listing;
+    }
+}
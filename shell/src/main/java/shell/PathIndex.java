@@ -0,0 +1,116 @@
+package shell;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Sorted index of the executables found on PATH, keyed by file name.
+ * The index is built once and only rescanned when PATH itself changes or
+ * one of its directories reports a new modification time. A new index can start from
+ * another's scan, so a daemon session with the same PATH skips its first rescan.
+ */
+public class PathIndex {
+    private final Environment environment;
+    private String[] indexedPath;
+    private File[] directories = new File[0];
+    private long[] modifiedTimes = new long[0];
+
+    // name -> first executable with that name in PATH order
+    private TreeMap<String, File> executables = new TreeMap<>();
+
+    public PathIndex(Environment environment) {
+        this.environment = environment;
+    }
+
+    /**
+     * An index over another environment's PATH that starts out with the seed's last scan
+     */
+    public PathIndex(Environment environment, PathIndex seed) {
+        this.environment = environment;
+        synchronized (seed) {
+            // the arrays and the map are replaced on rebuild, never changed, so they can be shared
+            indexedPath = seed.indexedPath;
+            directories = seed.directories;
+            modifiedTimes = seed.modifiedTimes;
+            executables = seed.executables;
+        }
+    }
+
+    /**
+     * Return the executable that PATH resolves the given name to, or null
+     */
+    public synchronized File lookup(String name) {
+        refresh();
+        return executables.get(name);
+    }
+
+    /**
+     * Return every executable name starting with the prefix, in sorted order
+     */
+    public synchronized List<String> complete(String prefix) {
+        refresh();
+        List<String> matches = new ArrayList<>();
+        for (String name : executables.subMap(prefix, true, prefix + Character.MAX_VALUE, false).keySet()) {
+            matches.add(name);
+        }
+        return matches;
+    }
+
+    /**
+     * Rescan the index if PATH or any of its directories changed since the last scan
+     */
+    private void refresh() {
+        // the environment hands out a new array only when PATH changes
+        String[] path = environment.pathDirectories();
+        if (path != indexedPath) {
+            if (!Arrays.equals(path, indexedPath)) {
+                rebuild(path);
+                return;
+            }
+            // the same directories split from another PATH string, e.g. a seed's
+            indexedPath = path;
+        }
+
+        for (int i = 0; i < directories.length; i++) {
+            if (directories[i].lastModified() != modifiedTimes[i]) {
+                rebuild(path);
+                return;
+            }
+        }
+    }
+
+    private void rebuild(String[] path) {
+        File[] newDirectories = new File[path.length];
+        for (int i = 0; i < path.length; i++) {
+            newDirectories[i] = new File(path[i]);
+        }
+        long[] newModifiedTimes = new long[newDirectories.length];
+        TreeMap<String, File> newExecutables = new TreeMap<>();
+
+        for (int i = 0; i < newDirectories.length; i++) {
+            File dirFile = newDirectories[i];
+            // 0 for missing directories, so creating one later triggers a rescan
+            newModifiedTimes[i] = dirFile.lastModified();
+
+            File[] files = dirFile.listFiles();
+            if (files == null) {
+                continue;
+            }
+            for (File file : files) {
+                // earlier PATH entries win, matching the lookup order
+                String fileName = file.getName();
+                if (!newExecutables.containsKey(fileName) && file.isFile() && file.canExecute()) {
+                    newExecutables.put(fileName, file);
+                }
+            }
+        }
+
+        indexedPath = path;
+        directories = newDirectories;
+        modifiedTimes = newModifiedTimes;
+        executables = newExecutables;
+    }
+}
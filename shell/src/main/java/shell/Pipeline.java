@@ -0,0 +1,241 @@
+package shell;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Runs the stages of a `|` pipeline concurrently.
+ * Consecutive external stages are started together with ProcessBuilder.startPipeline so
+ * their data never passes through the JVM; builtin stages run on their own threads and are
+ * connected to their neighbours through bounded pipes. A stage with its own `<` or here-text
+ * reads that instead, and whatever the stage before it writes is discarded, as in bash.
+ * Likewise a stage with its own `>` writes there, and the stage after it reads nothing.
+ */
+public class Pipeline {
+    // capacity of the pipe between two builtin stages
+    private static final int PIPE_BUFFER_SIZE = 64 * 1024;
+
+    private final List<Command> stages;
+    private final Map<String, Builtin> builtins;
+    private final Launcher launcher;
+    private final Path directory;
+    private final List<Process> processes = new ArrayList<>();
+
+    public Pipeline(List<Command> stages, Map<String, Builtin> builtins, Launcher launcher, Path directory) {
+        this.stages = stages;
+        this.builtins = builtins;
+        this.launcher = launcher;
+        this.directory = directory;
+    }
+
+    /**
+     * Start every stage, wait for all of them to finish and return the status of the last one
+     */
+    public int run() throws IOException, InterruptedException {
+        try {
+            return start().get();
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Start every stage without waiting. The returned future completes with the status of the
+     * last stage once every stage has finished.
+     */
+    public CompletableFuture<Integer> start() throws IOException {
+        // an unreadable `<` file or unwritable `>` target stops the pipeline before anything starts
+        for (Command stage : stages) {
+            try {
+                stage.stdin(directory).check();
+                Redirections.of(stage, directory, launcher.console()).check();
+            } catch (IOException e) {
+                launcher.console().err().println(e.getMessage());
+                return CompletableFuture.completedFuture(1);
+            }
+        }
+
+        // streams opened for builtin stages, closed again if a later stage cannot start
+        List<AutoCloseable> opened = new ArrayList<>();
+        try {
+            return startStages(opened);
+        } catch (IOException e) {
+            for (Process process : processes) {
+                process.destroyForcibly();
+            }
+            for (AutoCloseable stream : opened) {
+                closeQuietly(stream);
+            }
+            launcher.console().err().println(e.getMessage());
+            return CompletableFuture.completedFuture(e instanceof Launcher.StartFailure
+                    ? ((Launcher.StartFailure) e).status() : 1);
+        }
+    }
+
+    private CompletableFuture<Integer> startStages(List<AutoCloseable> opened) throws IOException {
+        List<Thread> threads = new ArrayList<>();
+        List<CompletableFuture<?>> finished = new ArrayList<>();
+        int[] builtinStatus = new int[stages.size()];
+
+        // processes that read from and write to each stage, null for builtin stages
+        Process[] firstProcess = new Process[stages.size()];
+        Process[] lastProcess = new Process[stages.size()];
+
+        // Start every run of consecutive external commands as one kernel-level pipeline
+        int i = 0;
+        while (i < stages.size()) {
+            if (!isExternal(stages.get(i))) {
+                i++;
+                continue;
+            }
+            int end = i;
+            List<ProcessBuilder> builders = new ArrayList<>();
+            // only the first process of a kernel pipeline can take its input from elsewhere,
+            // and only the last can send its output elsewhere
+            while (end < stages.size() && isExternal(stages.get(end))
+                    && (end == i || !stages.get(end).hasInput() && !stages.get(end - 1).hasOutput())) {
+                Command stage = stages.get(end);
+                ProcessBuilder pb = launcher.builder(new ArrayList<>(stage.arguments()), directory);
+                Redirections.of(stage, directory, launcher.console()).applyError(pb);
+                builders.add(pb);
+                end++;
+            }
+            InputSource input = stages.get(i).stdin(directory);
+            if (input.kind() != InputSource.Kind.INHERIT) {
+                builders.get(0).redirectInput(input.toProcessRedirect());
+            }
+            if (end == stages.size() || stages.get(end - 1).hasOutput()) {
+                Redirections.of(stages.get(end - 1), directory, launcher.console())
+                        .applyOutput(builders.get(builders.size() - 1));
+            } else if (stages.get(end).hasInput()) {
+                builders.get(builders.size() - 1).redirectOutput(ProcessBuilder.Redirect.DISCARD);
+            }
+
+            List<Process> started = launcher.startPipeline(builders);
+            processes.addAll(started);
+            for (int k = i; k < end; k++) {
+                firstProcess[k] = started.get(0);
+                lastProcess[k] = started.get(started.size() - 1);
+            }
+
+            // the head of the pipeline, and a stage after one with its own `>`, read nothing unless given input
+            if (input.kind() == InputSource.Kind.TEXT) {
+                input.feed(started.get(0));
+            } else if (i == 0 || stages.get(i - 1).hasOutput()) {
+                started.get(0).getOutputStream().close();
+            }
+            i = end;
+        }
+
+        // Builtin stages read from whatever precedes them and write into whatever follows
+        PipedInputStream pendingInput = null;
+        for (i = 0; i < stages.size(); i++) {
+            Command stage = stages.get(i);
+            if (lastProcess[i] != null) {
+                continue;
+            }
+
+            InputStream in;
+            if (stage.hasInput()) {
+                in = stage.stdin(directory).open(InputStream.nullInputStream());
+            } else if (i == 0) {
+                in = InputSource.unredirected();
+            } else if (stages.get(i - 1).hasOutput()) {
+                in = InputStream.nullInputStream();
+            } else if (lastProcess[i - 1] != null) {
+                in = lastProcess[i - 1].getInputStream();
+            } else {
+                in = pendingInput;
+            }
+            opened.add(in);
+
+            // the last stage and those with their own `>` write to their target, the others feed the next stage
+            Redirections streams = Redirections.of(stage, directory, launcher.console()).open();
+            opened.add(streams);
+            OutputStream out;
+            pendingInput = null;
+            if (i == stages.size() - 1 || stage.hasOutput()) {
+                out = streams.out();
+            } else if (stages.get(i + 1).hasInput()) {
+                out = OutputStream.nullOutputStream();
+            } else if (firstProcess[i + 1] != null) {
+                out = firstProcess[i + 1].getOutputStream();
+            } else {
+                pendingInput = new PipedInputStream(PIPE_BUFFER_SIZE);
+                out = new PipedOutputStream(pendingInput);
+            }
+            opened.add(out);
+
+            int index = i;
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            Thread thread = new Thread(() -> {
+                builtinStatus[index] = runBuiltin(stage, in, out, streams);
+                done.complete(null);
+            }, "pipeline-" + i);
+            thread.setDaemon(true);
+            threads.add(thread);
+            finished.add(done);
+        }
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Process process : processes) {
+            finished.add(process.onExit());
+        }
+
+        int last = stages.size() - 1;
+        Process lastStage = lastProcess[last];
+        return CompletableFuture.allOf(finished.toArray(new CompletableFuture<?>[0]))
+                .thenApply(ignored -> lastStage != null ? lastStage.exitValue() : builtinStatus[last]);
+    }
+
+    /**
+     * Child processes started for the external stages, in pipeline order
+     */
+    public List<Process> processes() {
+        return processes;
+    }
+
+    private boolean isExternal(Command stage) {
+        List<String> arguments = stage.arguments();
+        return !arguments.isEmpty() && !builtins.containsKey(arguments.get(0))
+                && launcher.isCommand(arguments.get(0));
+    }
+
+    private int runBuiltin(Command stage, InputStream in, OutputStream out, Redirections streams) {
+        try {
+            String name = stage.arguments().get(0);
+            Builtin builtin = builtins.get(name);
+            if (builtin != null) {
+                return builtin.run(stage.arguments(), in, out, streams.err());
+            }
+            launcher.console().out().println(name + ": command not found");
+            return 127;
+        } catch (IOException e) {
+            // the next stage stopped reading early, e.g. `cat big.log | head`
+            return 1;
+        } finally {
+            closeQuietly(out);
+            closeQuietly(in);
+            closeQuietly(streams);
+        }
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception e) {
+            // nothing left to do with a broken stream
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package shell;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Where one output stream of a command goes: the inherited terminal stream,
+ * a file (truncated or appended), or for stdout after >&2 the shell's stderr.
+ */
+public class Redirection {
+    public enum Kind {
+        INHERIT, FILE, APPEND, ERROR
+    }
+
+    public static final Redirection INHERIT = new Redirection(Kind.INHERIT, null, null);
+    public static final Redirection ERROR = new Redirection(Kind.ERROR, null, null);
+
+    // marks a child's stdout for the shell's stderr, which the launcher replaces with a relay
+    public static final ProcessBuilder.Redirect TO_STDERR = ProcessBuilder.Redirect.appendTo(new File("/dev/stderr"));
+
+    // buffer of the stream a builtin writes a file through
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private final Kind kind;
+    // the target as typed, for error messages
+    private final String name;
+    private final File file;
+
+    private Redirection(Kind kind, String name, File file) {
+        this.kind = kind;
+        this.name = name;
+        this.file = file;
+    }
+
+    /**
+     * Redirection into a file, either truncating it or appending to it
+     */
+    public static Redirection toFile(File file, boolean append) {
+        return new Redirection(append ? Kind.APPEND : Kind.FILE, file.getPath(), file);
+    }
+
+    /**
+     * Bind an optional redirection path, relative to the given directory, to an output target
+     */
+    public static Redirection resolve(String path, boolean append, Path directory) {
+        if (path == null) {
+            return INHERIT;
+        }
+        return new Redirection(append ? Kind.APPEND : Kind.FILE, path, directory.resolve(path).normalize().toFile());
+    }
+
+    public Kind kind() {
+        return kind;
+    }
+
+    public File file() {
+        return file;
+    }
+
+    public boolean isFile() {
+        return kind == Kind.FILE || kind == Kind.APPEND;
+    }
+
+    /**
+     * Translate into a ProcessBuilder redirect, creating the parent directories of file targets
+     */
+    public ProcessBuilder.Redirect toProcessRedirect() {
+        switch (kind) {
+            case FILE:
+                createParentDirectories();
+                return ProcessBuilder.Redirect.to(file);
+            case APPEND:
+                createParentDirectories();
+                return ProcessBuilder.Redirect.appendTo(file);
+            case ERROR:
+                return TO_STDERR;
+            default:
+                return ProcessBuilder.Redirect.INHERIT;
+        }
+    }
+
+    /**
+     * Make sure a file target can be opened for writing, creating or truncating it as the
+     * command would, and fail with a message worded like bash's
+     */
+    public void check() throws IOException {
+        if (isFile()) {
+            openChannel().close();
+        }
+    }
+
+    /**
+     * Open a file target for writing, truncating or appending as requested.
+     * Fails with "name: reason", e.g. "out: Is a directory".
+     */
+    public FileChannel openChannel() throws IOException {
+        createParentDirectories();
+        try {
+            if (kind == Kind.APPEND) {
+                return FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND);
+            }
+            return FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            throw new IOException(name + ": " + Chunks.reason(e), e);
+        }
+    }
+
+    /**
+     * Open this target as a buffered stream for output the shell writes itself.
+     * Non-file targets use the given terminal stream, whose close() must leave the terminal open.
+     */
+    public OutputStream openStream(OutputStream inherited) throws IOException {
+        if (isFile()) {
+            return new ChannelOutputStream(openChannel(), true, WRITE_BUFFER_SIZE);
+        }
+        return inherited;
+    }
+
+    private void createParentDirectories() {
+        File parentDir = file.getParentFile();
+        if (parentDir != null) {
+            parentDir.mkdirs();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package shell;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * The output streams of one command after its redirections are applied.
+ * Builtins get each target opened once as a buffered stream, external commands get the
+ * same targets as ProcessBuilder redirects. When stderr follows stdout (2>&1, &>) or both
+ * name the same file, they share one stream instead of overwriting each other; stdout
+ * following an unredirected stderr (>&2) shares the shell's stderr stream.
+ */
+public class Redirections implements AutoCloseable {
+    private final Redirection stdout;
+    private final Redirection stderr;
+    private final boolean shared;
+    private final Console console;
+
+    private OutputStream out;
+    private OutputStream errStream;
+    private PrintStream err;
+
+    private Redirections(Redirection stdout, Redirection stderr, boolean shared, Console console) {
+        this.stdout = stdout;
+        this.stderr = stderr;
+        this.shared = shared;
+        this.console = console;
+    }
+
+    /**
+     * Resolve a command's redirections against the working directory, without opening anything yet
+     */
+    public static Redirections of(Command command, Path directory) {
+        return of(command, directory, Console.system());
+    }
+
+    /**
+     * Same, with unredirected output going to the given console
+     */
+    public static Redirections of(Command command, Path directory, Console console) {
+        Redirection stdout = command.stdout(directory);
+        Redirection stderr = command.stderr(directory);
+        boolean shared = command.errorToOutput()
+                || (stdout.isFile() && stderr.isFile() && stdout.file().equals(stderr.file()));
+        return new Redirections(stdout, stderr, shared, console);
+    }
+
+    /**
+     * Apply the stderr binding to a child process
+     */
+    public void applyError(ProcessBuilder pb) {
+        if (shared) {
+            pb.redirectErrorStream(true);
+        } else {
+            pb.redirectError(stderr.toProcessRedirect());
+        }
+    }
+
+    /**
+     * Apply the stdout binding to a child process
+     */
+    public void applyOutput(ProcessBuilder pb) {
+        pb.redirectOutput(stdout.toProcessRedirect());
+    }
+
+    /**
+     * Apply both bindings to a child process
+     */
+    public void applyTo(ProcessBuilder pb) {
+        applyOutput(pb);
+        applyError(pb);
+    }
+
+    /**
+     * The stdout target, opened on first use
+     */
+    public OutputStream out() throws IOException {
+        if (out == null) {
+            if (stdout.kind() == Redirection.Kind.ERROR && !stderr.isFile()) {
+                // shares the stream of an unredirected stderr, so the two keep their order
+                err();
+                out = errStream;
+            } else if (stdout.kind() == Redirection.Kind.ERROR) {
+                out = console.stderr();
+            } else {
+                out = stdout.openStream(console.stdout());
+            }
+        }
+        return out;
+    }
+
+    /**
+     * The stderr target as a print stream, opened on first use
+     */
+    public PrintStream err() throws IOException {
+        if (err == null) {
+            errStream = shared ? out() : stderr.openStream(console.stderr());
+            err = new PrintStream(errStream, true, StandardCharsets.UTF_8);
+        }
+        return err;
+    }
+
+    /**
+     * Make sure every file target can be opened, before a child is started with them
+     */
+    public void check() throws IOException {
+        stdout.check();
+        stderr.check();
+    }
+
+    /**
+     * Open both targets up front, so redirect files exist even when nothing is written.
+     * If one cannot be opened, whatever was opened is closed again.
+     */
+    public Redirections open() throws IOException {
+        try {
+            out();
+            err();
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+        return this;
+    }
+
+    /**
+     * Flush and close whatever was opened; terminal streams are only flushed
+     */
+    @Override
+    public void close() throws IOException {
+        if (err != null) {
+            err.flush();
+        }
+        try {
+            if (errStream != null && errStream != out) {
+                errStream.close();
+            }
+        } finally {
+            if (out != null) {
+                out.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package shell;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A child whose stdout and stderr would have been inherited from the shell, copied into a
+ * forwarded console instead by threads of the shell. It only counts as finished once those
+ * copies have drained, so no output arrives after its status or the next prompt.
+ */
+public class RelayedProcess extends Process {
+    private static final int RELAY_BUFFER_SIZE = 8 * 1024;
+
+    private final Process process;
+    private final boolean relayOutput;
+    private final boolean relayError;
+    private final List<Thread> relays = new ArrayList<>();
+
+    private RelayedProcess(Process process, boolean relayOutput, boolean relayError) {
+        this.process = process;
+        this.relayOutput = relayOutput;
+        this.relayError = relayError;
+    }
+
+    /**
+     * Start copying a started child's stdout and stderr into the given console streams,
+     * null for a stream that is not relayed
+     */
+    public static RelayedProcess relay(Process process, ChannelOutputStream output, ChannelOutputStream error) {
+        RelayedProcess relayed = new RelayedProcess(process, output != null, error != null);
+        if (output != null) {
+            relayed.start(process.getInputStream(), output, "relay-stdout");
+        }
+        if (error != null) {
+            relayed.start(process.getErrorStream(), error, "relay-stderr");
+        }
+        return relayed;
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+        return process.getOutputStream();
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return relayOutput ? InputStream.nullInputStream() : process.getInputStream();
+    }
+
+    @Override
+    public InputStream getErrorStream() {
+        return relayError ? InputStream.nullInputStream() : process.getErrorStream();
+    }
+
+    @Override
+    public int waitFor() throws InterruptedException {
+        int status = process.waitFor();
+        for (Thread relay : relays) {
+            relay.join();
+        }
+        return status;
+    }
+
+    @Override
+    public boolean waitFor(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        if (!process.waitFor(timeout, unit)) {
+            return false;
+        }
+        for (Thread relay : relays) {
+            long left = deadline - System.nanoTime();
+            if (left > 0) {
+                TimeUnit.NANOSECONDS.timedJoin(relay, left);
+            }
+            if (relay.isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public CompletableFuture<Process> onExit() {
+        return process.onExit().thenApplyAsync(exited -> {
+            try {
+                waitFor();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return this;
+        });
+    }
+
+    @Override
+    public int exitValue() {
+        return process.exitValue();
+    }
+
+    @Override
+    public boolean isAlive() {
+        return process.isAlive();
+    }
+
+    @Override
+    public void destroy() {
+        process.destroy();
+    }
+
+    @Override
+    public Process destroyForcibly() {
+        process.destroyForcibly();
+        return this;
+    }
+
+    @Override
+    public boolean supportsNormalTermination() {
+        return process.supportsNormalTermination();
+    }
+
+    @Override
+    public ProcessHandle toHandle() {
+        return process.toHandle();
+    }
+
+    private void start(InputStream source, ChannelOutputStream target, String name) {
+        Thread relay = new Thread(() -> {
+            byte[] buffer = new byte[RELAY_BUFFER_SIZE];
+            try (source) {
+                int n;
+                // flushed per read, so a slow child's output shows up as it is written
+                while ((n = source.read(buffer)) > 0) {
+                    target.write(buffer, 0, n);
+                    target.flush();
+                }
+            } catch (IOException e) {
+                // the client went away, the child gets SIGPIPE on its next write
+            }
+        }, name);
+        relay.setDaemon(true);
+        relays.add(relay);
+        relay.start();
+    }
+}
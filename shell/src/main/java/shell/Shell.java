@@ -0,0 +1,1104 @@
+package shell;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.io.IOException;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * One shell session: its working directory, variables, jobs and history, reading commands
+ * from a console. The java-shell process runs one on its own terminal; the daemon runs one
+ * per client connection, all sharing the warm JVM.
+ */
+public class Shell {
+    // working directory, absolute and normalized once per cd
+    private Path currentDirectory;
+
+    // directory before the last cd, for cd -
+    private Path previousDirectory;
+    private final Environment environment;
+    private final PathIndex pathIndex;
+
+    // where each external command was last found, so repeat runs skip the PATH search
+    private final CommandHash commandHash;
+
+    // starts external commands in the working directory with the exported environment
+    private final Launcher launcher;
+
+    // opt-in latency histograms, see the stats builtin
+    private final Metrics metrics;
+
+    // turns each input line into commands, reusing its buffers between lines
+    private final Parser parser;
+
+    // cleared by the exit builtin
+    private boolean running = true;
+
+    // background jobs started with &
+    private final JobTable jobTable = new JobTable();
+
+    // true when reading from the line editor rather than a script
+    private boolean interactive = false;
+
+    // read size for scripts and piped input
+    private static final int SCRIPT_BUFFER_SIZE = 64 * 1024;
+
+    // interactive command history, created when the line editor starts
+    private History history;
+
+    // entries kept in memory when HISTSIZE is not set
+    private static final int DEFAULT_HISTORY_SIZE = 1000;
+
+    // where commands are read from and messages written to
+    private final Console console;
+
+    // the controlling terminal, switched to raw mode for the line editor
+    private final TerminalMode terminal;
+
+    // line editor output, flushed once per batch of input
+    private final TerminalWriter screen;
+
+    // built-in commands, shared by dispatch, type, completion and pipelines
+    private final Map<String, Builtin> builtins = new HashMap<>();
+
+    // the same builtins as run by pipeline stages and background jobs, which like bash's
+    // subshells cannot change the session: cd, exit, export and unset only report a status
+    private final Map<String, Builtin> subshellBuiltins = new HashMap<>();
+
+    // tab completion over the builtins, PATH and the file system
+    private final Completer completer;
+
+    public Shell(Console console, Environment environment, PathIndex pathIndex, Path directory) {
+        this.console = console;
+        this.environment = environment;
+        this.pathIndex = pathIndex;
+        currentDirectory = directory.toAbsolutePath().normalize();
+        previousDirectory = currentDirectory;
+        commandHash = new CommandHash(environment, pathIndex);
+        launcher = new Launcher(commandHash, environment, console);
+        metrics = Metrics.fromEnvironment(environment, currentDirectory);
+        parser = new Parser(environment);
+        terminal = console.terminal();
+        screen = new TerminalWriter(console.out());
+
+        builtins.put("echo", this::echo);
+        builtins.put("exit", this::exit);
+        builtins.put("type", this::type);
+        builtins.put("pwd", this::pwd);
+        builtins.put("cd", this::cd);
+        builtins.put("cat", new Cat(() -> currentDirectory, this::runFallback));
+        builtins.put("jobs", this::jobs);
+        builtins.put("wait", this::waitJobs);
+        builtins.put("fg", this::fg);
+        builtins.put("kill", this::kill);
+        builtins.put("parallel", new Parallel(launcher, () -> currentDirectory));
+        builtins.put("export", (arguments, in, out, err) -> export(environment, arguments, out, err));
+        builtins.put("unset", (arguments, in, out, err) -> unset(environment, arguments));
+        builtins.put("env", this::env);
+        builtins.put("hash", this::hash);
+        builtins.put("ls", new Ls(environment, console, () -> currentDirectory, this::runFallback));
+        builtins.put("wc", new Wc(() -> currentDirectory, this::runFallback));
+        builtins.put("head", new Head(() -> currentDirectory, this::runFallback));
+        builtins.put("grep", new Grep(() -> currentDirectory, this::runFallback));
+        builtins.put("stats", this::stats);
+        subshellBuiltins.putAll(builtins);
+        subshellBuiltins.put("exit", (arguments, in, out, err) -> exitStatus(arguments, err));
+        subshellBuiltins.put("cd", (arguments, in, out, err) -> cdTarget(arguments, out, err) != null ? 0 : 1);
+        subshellBuiltins.put("export", (arguments, in, out, err) -> export(environment.copy(), arguments, out, err));
+        subshellBuiltins.put("unset", (arguments, in, out, err) -> unset(environment.copy(), arguments));
+        Set<String> commandWords = new HashSet<>(builtins.keySet());
+        commandWords.add(Parser.TIME);
+        completer = new Completer(commandWords, pathIndex, new PathCompleter(environment));
+    }
+
+    /**
+     * Run a script, or the console's input, until end of input or exit and return the exit
+     * status. Only an interactive console without a script gets the line editor.
+     */
+    public int run(String scriptPath) throws Exception {
+        // A script file or piped input runs without the line editor
+        if (scriptPath != null || !terminal.isInteractive()) {
+            return runScript(scriptPath);
+        }
+
+        interactive = true;
+        history = openHistory();
+        terminal.enterRawMode();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(console.input()));
+        // here-document bodies are typed after a "> " prompt
+        LineReader continuation = () -> {
+            screen.append("> ");
+            if (terminal.isRawMode()) {
+                return readInteractiveLine(reader);
+            }
+            screen.flush();
+            return reader.readLine();
+        };
+
+        try {
+            while (running) {
+                jobTable.reportFinished(console.err());
+                screen.append("$ ");
+
+                String line;
+                if (terminal.isRawMode()) {
+                    line = readInteractiveLine(reader);
+                } else {
+                    screen.flush();
+                    line = reader.readLine();
+                }
+                if (line == null) {
+                    break;
+                }
+
+                String input = line.trim();
+                if (input.isEmpty()) {
+                    continue;
+                }
+
+                history.add(input);
+                execute(input, continuation);
+            }
+        } finally {
+            // Restore settings
+            terminal.restore();
+        }
+        console.out().flush();
+        return environment.lastStatus();
+    }
+
+    /**
+     * Save what must outlive the session: the history file and the stats dump
+     */
+    public void flush() {
+        if (history != null) {
+            history.flush();
+        }
+        metrics.dump();
+    }
+
+    /**
+     * History file and size from HISTFILE and HISTSIZE, defaulting to ~/.java_shell_history
+     */
+    private History openHistory() {
+        String file = environment.get("HISTFILE");
+        if (file == null) {
+            file = Paths.get(System.getProperty("user.home"), ".java_shell_history").toString();
+        }
+        int size = DEFAULT_HISTORY_SIZE;
+        try {
+            if (environment.get("HISTSIZE") != null) {
+                size = Integer.parseInt(environment.get("HISTSIZE"));
+            }
+        } catch (NumberFormatException e) {
+            // keep the default
+        }
+        return new History(Paths.get(file), size);
+    }
+
+    /**
+     * Run every line of a script, or of stdin when no script is given, without prompt or echo.
+     * Returns the exit status of the last command.
+     */
+    private int runScript(String scriptPath) throws Exception {
+        InputStream in = console.input();
+        if (scriptPath != null) {
+            File script = new File(scriptPath);
+            if (!script.isFile()) {
+                console.err().println(scriptPath + ": No such file or directory");
+                return 127;
+            }
+            in = new FileInputStream(script);
+        }
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8),
+                SCRIPT_BUFFER_SIZE)) {
+            String line;
+            while (running && (line = reader.readLine()) != null) {
+                String input = line.trim();
+
+                // skip blank lines, comments and the #! line
+                if (input.isEmpty() || input.startsWith("#")) {
+                    continue;
+                }
+                execute(input, reader::readLine);
+            }
+        }
+        console.out().flush();
+        return environment.lastStatus();
+    }
+
+    /**
+     * Source of the lines that follow a command line, for here-document bodies
+     */
+    @FunctionalInterface
+    private interface LineReader {
+        String readLine() throws IOException;
+    }
+
+    /**
+     * Parse and run one command line, returning its exit status. A malformed line is refused
+     * whole, and here-document bodies are read from the following lines, before anything runs.
+     */
+    private int execute(String input, LineReader following) throws Exception {
+        try {
+            parser.check(input);
+        } catch (Parser.SyntaxError e) {
+            console.err().println(e.getMessage());
+            environment.setLastStatus(2);
+            return 2;
+        }
+        List<String> bodies = new ArrayList<>();
+        for (Parser.HereDocument document : parser.hereDocuments(input)) {
+            bodies.add(readHereDocument(document, following));
+        }
+
+        // each pipeline of a ;, &&, || list is parsed only once the ones before it have run
+        parser.begin(input, bodies);
+        try {
+            while (running && parser.hasNext()) {
+                List<Command> stages = parser.next();
+                int status = environment.lastStatus();
+
+                // && and || skip a pipeline and keep the status of the last one that ran
+                Parser.Condition condition = parser.condition();
+                if ((condition == Parser.Condition.IF_SUCCESS && status != 0)
+                        || (condition == Parser.Condition.IF_FAILURE && status == 0)) {
+                    continue;
+                }
+                CpuTimes before = parser.isTimed() ? CpuTimes.now() : null;
+                long start = System.nanoTime();
+                environment.setLastStatus(runPipeline(stages, parser.isBackground(), parser.text(), before, start));
+                if (before != null && !parser.isBackground()) {
+                    reportTime(before, start);
+                }
+            }
+        } catch (Parser.SyntaxError e) {
+            console.err().println(e.getMessage());
+            environment.setLastStatus(2);
+        }
+        return environment.lastStatus();
+    }
+
+    /**
+     * Read the lines of a here-document body up to its delimiter line, or warn at end of input like bash
+     */
+    private String readHereDocument(Parser.HereDocument document, LineReader following)
+            throws IOException {
+        StringBuilder body = new StringBuilder();
+        String line;
+        while ((line = following.readLine()) != null) {
+            if (document.stripTabs()) {
+                int tabs = 0;
+                while (tabs < line.length() && line.charAt(tabs) == '\t') {
+                    tabs++;
+                }
+                line = line.substring(tabs);
+            }
+            if (line.equals(document.delimiter())) {
+                return body.toString();
+            }
+            body.append(line).append('\n');
+        }
+        console.err().println("warning: here-document delimited by end-of-file (wanted `"
+                + document.delimiter() + "')");
+        return body.toString();
+    }
+
+    /**
+     * Run one parsed pipeline in the foreground, or start it as a background job, and return its status.
+     * A timed background job reports its times when it finishes, from CPU times read at `before`.
+     */
+    private int runPipeline(List<Command> stages, boolean background, String text, CpuTimes before, long start)
+            throws Exception {
+        if (stages.isEmpty()) {
+            return 0;
+        }
+
+        // Pipelines run every stage concurrently, a trailing & starts the pipeline as a background job
+        if (background || stages.size() > 1) {
+            Pipeline pipeline = new Pipeline(stages, subshellBuiltins, launcher, currentDirectory);
+            if (!background) {
+                return pipeline.run();
+            }
+
+            CompletableFuture<Integer> finished = pipeline.start();
+            if (before != null) {
+                finished = finished.whenComplete((status, failure) -> reportTime(before, start));
+            }
+            JobTable.Job job = jobTable.add(text, pipeline.processes(), finished);
+            if (interactive) {
+                console.err().println("[" + job.id() + "] " + job.pid());
+            }
+            return 0;
+        }
+
+        Command parsed = stages.get(0);
+        List<String> parts = parsed.arguments();
+        InputSource input = parsed.stdin(currentDirectory);
+        Redirections redirections = Redirections.of(parsed, currentDirectory, console);
+        // an unreadable `<` file or unwritable `>` target fails the command before it starts
+        try {
+            input.check();
+            redirections.check();
+        } catch (IOException e) {
+            console.err().println(e.getMessage());
+            return 1;
+        }
+        if (parts.isEmpty()) {
+            // a redirection on its own still creates or truncates its file, which check() has done
+            return 0;
+        }
+        String command = parts.get(0);
+
+        // NAME=value on its own sets a shell variable
+        int equals = command.indexOf('=');
+        if (parts.size() == 1 && equals > 0 && Environment.isValidName(command.substring(0, equals))) {
+            environment.set(command.substring(0, equals), command.substring(equals + 1));
+            return 0;
+        }
+
+        Builtin builtin = builtins.get(command);
+        if (builtin != null) {
+            return runBuiltin(builtin, parsed);
+        }
+
+        long lookup = metrics.start();
+        ProcessBuilder pb = launcher.builder(parts, currentDirectory);
+        metrics.record(Metrics.Stage.LOOKUP, lookup);
+        if (pb == null) {
+            console.out().println(command + ": command not found");
+            return 127;
+        }
+
+        // one process, each stream bound to its own source or target
+        redirections.applyTo(pb);
+        pb.redirectInput(input.toProcessRedirect());
+        long spawn = metrics.start();
+        Process process;
+        try {
+            process = launcher.start(pb);
+        } catch (Launcher.StartFailure e) {
+            console.err().println(e.getMessage());
+            return e.status();
+        }
+        metrics.record(Metrics.Stage.SPAWN, spawn);
+        input.feed(process);
+        long child = metrics.start();
+        int status = process.waitFor();
+        metrics.record(Metrics.Stage.CHILD, child);
+        return status;
+    }
+
+    /**
+     * Run a builtin in the shell process with its streams bound to their redirection sources and targets
+     */
+    private int runBuiltin(Builtin builtin, Command command) {
+        console.out().flush();
+        console.err().flush();
+        boolean redirected = command.outputRedirectPath() != null || command.errorRedirectPath() != null;
+        long start = redirected ? metrics.start() : 0;
+        InputStream in;
+        Redirections streams;
+        try {
+            in = command.stdin(currentDirectory).open(InputSource.unredirected());
+        } catch (IOException e) {
+            // a source that went away since the check
+            console.err().println(e.getMessage());
+            return 1;
+        }
+        try {
+            streams = Redirections.of(command, currentDirectory, console).open();
+        } catch (IOException e) {
+            try {
+                in.close();
+            } catch (IOException ignored) {
+                // the open error is the one worth reporting
+            }
+            console.err().println(e.getMessage());
+            return 1;
+        }
+        try (in; streams) {
+            return builtin.run(command.arguments(), in, streams.out(), streams.err());
+        } catch (IOException e) {
+            // opened fine but refused the output, e.g. `echo x > /dev/full`
+            console.err().println(command.arguments().get(0) + ": write error: " + Chunks.reason(e));
+            return 1;
+        } finally {
+            if (redirected) {
+                metrics.record(Metrics.Stage.REDIRECT, start);
+            }
+        }
+    }
+
+    private int echo(List<String> arguments, InputStream in, OutputStream out, PrintStream err)
+            throws IOException {
+        String line = String.join(" ", arguments.subList(1, arguments.size())) + "\n";
+        out.write(line.getBytes(StandardCharsets.UTF_8));
+        return 0;
+    }
+
+    private int exit(List<String> arguments, InputStream in, OutputStream out, PrintStream err) {
+        int status = exitStatus(arguments, err);
+        running = false;
+        return status;
+    }
+
+    private int exitStatus(List<String> arguments, PrintStream err) {
+        int status = environment.lastStatus();
+        if (arguments.size() > 1) {
+            try {
+                status = Integer.parseInt(arguments.get(1));
+            } catch (NumberFormatException e) {
+                err.println("exit: " + arguments.get(1) + ": numeric argument required");
+                status = 2;
+            }
+        }
+        return status;
+    }
+
+    private int pwd(List<String> arguments, InputStream in, OutputStream out, PrintStream err)
+            throws IOException {
+        out.write((currentDirectory + "\n").getBytes(StandardCharsets.UTF_8));
+        return 0;
+    }
+
+    private int cd(List<String> arguments, InputStream in, OutputStream out, PrintStream err)
+            throws IOException {
+        Path newDir = cdTarget(arguments, out, err);
+        if (newDir == null) {
+            return 1;
+        }
+        previousDirectory = currentDirectory;
+        currentDirectory = newDir;
+        environment.set("OLDPWD", previousDirectory.toString());
+        environment.set("PWD", currentDirectory.toString());
+        return 0;
+    }
+
+    /**
+     * The directory cd would change to, or null after reporting why it cannot
+     */
+    private Path cdTarget(List<String> arguments, OutputStream out, PrintStream err) throws IOException {
+        String arg = arguments.size() > 1 ? arguments.get(1) : "~";
+        String home = environment.get("HOME");
+        Path newDir;
+
+        // Go back to HOME, or below it for ~/sub
+        if (arg.equals("~") || arg.startsWith("~/")) {
+            if (home == null) {
+                err.println("cd: HOME not set");
+                return null;
+            }
+            newDir = Paths.get(home).resolve(arg.substring(1).replaceFirst("^/+", ""));
+        }
+
+        // back to the previous directory, printing it like bash
+        else if (arg.equals("-")) {
+            newDir = previousDirectory;
+            out.write((newDir + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+
+        // absolute or relative path, with .. removed lexically
+        else {
+            newDir = currentDirectory.resolve(arg);
+        }
+        newDir = newDir.toAbsolutePath().normalize();
+
+        if (Files.isDirectory(newDir)) {
+            return newDir;
+        }
+        err.println("cd: " + arg + ": No such file or directory");
+        return null;
+    }
+
+    private int type(List<String> arguments, InputStream in, OutputStream out, PrintStream err)
+            throws IOException {
+        int status = 0;
+        for (String argument : arguments.subList(1, arguments.size())) {
+            String output;
+            if (argument.equals(Parser.TIME)) {
+                output = argument + " is a shell keyword";
+            } else if (builtins.containsKey(argument)) {
+                output = argument + " is a shell builtin";
+            } else if (commandHash.hashed(argument) != null) {
+                output = argument + " is hashed (" + commandHash.hashed(argument).file().getPath() + ")";
+            } else {
+                File f = pathIndex.lookup(argument);
+                output = f != null ? argument + " is " + f.getAbsolutePath() : argument + ": not found";
+                if (f == null) {
+                    status = 1;
+                }
+            }
+            out.write((output + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        return status;
+    }
+
+    private int jobs(List<String> arguments, InputStream in, OutputStream out, PrintStream err)
+            throws IOException {
+        for (JobTable.Job job : jobTable.list()) {
+            out.write((job.describe() + "\n").getBytes(StandardCharsets.UTF_8));
+            if (job.isDone()) {
+                jobTable.remove(job);
+            }
+        }
+        return 0;
+    }
+
+    private int waitJobs(List<String> arguments, InputStream in, OutputStream out, PrintStream err)
+            throws IOException {
+        List<JobTable.Job> waitFor = new ArrayList<>();
+        if (arguments.size() == 1) {
+            waitFor.addAll(jobTable.list());
+        }
+        int status = 0;
+        for (String spec : arguments.subList(1, arguments.size())) {
+            JobTable.Job job = jobTable.find(spec);
+            if (job == null) {
+                err.println("wait: " + spec + ": no such job");
+                status = 127;
+            } else {
+                waitFor.add(job);
+            }
+        }
+
+        try {
+            for (JobTable.Job job : waitFor) {
+                status = job.waitFor();
+                jobTable.remove(job);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 130;
+        }
+        return status;
+    }
+
+    private int fg(List<String> arguments, InputStream in, OutputStream out, PrintStream err)
+            throws IOException {
+        String spec = arguments.size() > 1 ? arguments.get(1) : null;
+        JobTable.Job job = jobTable.find(spec);
+        if (job == null) {
+            err.println("fg: " + (spec == null ? "current" : spec) + ": no such job");
+            return 1;
+        }
+
+        out.write((job.commandLine() + "\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+        try {
+            int status = job.waitFor();
+            jobTable.remove(job);
+            return status;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 130;
+        }
+    }
+
+    private int kill(List<String> arguments, InputStream in, OutputStream out, PrintStream err)
+            throws IOException {
+        if (arguments.size() < 2) {
+            err.println("kill: usage: kill [-TERM | -KILL] pid | %job ...");
+            return 2;
+        }
+
+        // TERM and KILL are sent in-process, any other signal goes through the kill binary
+        int first = 1;
+        boolean force = false;
+        String option = arguments.get(1);
+        if (option.startsWith("-") && !option.equals("-")) {
+            String signal = option.substring(1).toUpperCase();
+            if (signal.equals("9") || signal.equals("KILL") || signal.equals("SIGKILL")) {
+                force = true;
+            } else if (!signal.equals("15") && !signal.equals("TERM") && !signal.equals("SIGTERM")) {
+                return killWithBinary(arguments, err);
+            }
+            first = 2;
+        }
+
+        int status = 0;
+        for (String target : arguments.subList(first, arguments.size())) {
+            List<ProcessHandle> handles = resolveKillTarget(target);
+            if (handles.isEmpty()) {
+                err.println("kill: " + target + ": no such process or job");
+                status = 1;
+                continue;
+            }
+            for (ProcessHandle handle : handles) {
+                if (force) {
+                    handle.destroyForcibly();
+                } else {
+                    handle.destroy();
+                }
+            }
+        }
+        return status;
+    }
+
+    /**
+     * Processes addressed by a kill argument, either a `%n` job spec or a pid
+     */
+    private List<ProcessHandle> resolveKillTarget(String target) {
+        List<ProcessHandle> handles = new ArrayList<>();
+        if (target.startsWith("%")) {
+            JobTable.Job job = jobTable.find(target);
+            if (job != null) {
+                for (Process process : job.processes()) {
+                    if (process.isAlive()) {
+                        handles.add(process.toHandle());
+                    }
+                }
+            }
+            return handles;
+        }
+        try {
+            ProcessHandle.of(Long.parseLong(target)).ifPresent(handles::add);
+        } catch (NumberFormatException e) {
+            // neither a pid nor a job spec
+        }
+        return handles;
+    }
+
+    /**
+     * Delegate signals the JVM cannot send to the system kill, with job specs turned into pids
+     */
+    private int killWithBinary(List<String> arguments, PrintStream err) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add("kill");
+        command.add(arguments.get(1));
+        for (String target : arguments.subList(2, arguments.size())) {
+            if (target.startsWith("%")) {
+                for (ProcessHandle handle : resolveKillTarget(target)) {
+                    command.add(Long.toString(handle.pid()));
+                }
+            } else {
+                command.add(target);
+            }
+        }
+
+        ProcessBuilder pb = launcher.builder(command, currentDirectory);
+        if (pb == null) {
+            err.println("kill: " + arguments.get(1) + ": unsupported signal");
+            return 1;
+        }
+
+        console.out().flush();
+        try {
+            return launcher.start(pb.inheritIO()).waitFor();
+        } catch (Launcher.StartFailure e) {
+            err.println("kill: " + e.getMessage());
+            return e.status();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 130;
+        }
+    }
+
+    private int export(Environment environment, List<String> arguments, OutputStream out, PrintStream err)
+            throws IOException {
+        if (arguments.size() == 1) {
+            return env(arguments, InputStream.nullInputStream(), out, err);
+        }
+
+        int status = 0;
+        for (String argument : arguments.subList(1, arguments.size())) {
+            int equals = argument.indexOf('=');
+            String name = equals < 0 ? argument : argument.substring(0, equals);
+            if (!Environment.isValidName(name)) {
+                err.println("export: `" + argument + "': not a valid identifier");
+                status = 1;
+                continue;
+            }
+            if (equals >= 0) {
+                environment.set(name, argument.substring(equals + 1));
+            }
+            environment.export(name);
+        }
+        return status;
+    }
+
+    private int unset(Environment environment, List<String> arguments) {
+        for (String name : arguments.subList(1, arguments.size())) {
+            environment.unset(name);
+        }
+        return 0;
+    }
+
+    private int env(List<String> arguments, InputStream in, OutputStream out, PrintStream err)
+            throws IOException {
+        // with arguments, env is the real program running a command in a modified environment
+        if (arguments.size() > 1) {
+            return runFallback(arguments, in, out, err);
+        }
+
+        StringBuilder listing = new StringBuilder();
+        for (Map.Entry<String, String> variable : environment.exported().entrySet()) {
+            listing.append(variable.getKey()).append('=').append(variable.getValue()).append('\n');
+        }
+        out.write(listing.toString().getBytes(StandardCharsets.UTF_8));
+        return 0;
+    }
+
+    private int hash(List<String> arguments, InputStream in, OutputStream out, PrintStream err)
+            throws IOException {
+        int status = 0;
+        boolean delete = false;
+        List<String> names = arguments.subList(1, arguments.size());
+        if (!names.isEmpty() && names.get(0).equals("-r")) {
+            commandHash.clear();
+            return 0;
+        }
+        if (!names.isEmpty() && names.get(0).equals("-d")) {
+            delete = true;
+            names = names.subList(1, names.size());
+        }
+
+        // with names, remember or forget those commands
+        if (!names.isEmpty()) {
+            for (String name : names) {
+                boolean found = delete ? commandHash.remove(name)
+                        : builtins.containsKey(name) || commandHash.add(name);
+                if (!found) {
+                    err.println("hash: " + name + ": not found");
+                    status = 1;
+                }
+            }
+            return status;
+        }
+
+        Map<String, CommandHash.Entry> entries = commandHash.entries();
+        if (entries.isEmpty()) {
+            err.println("hash: hash table empty");
+            return 0;
+        }
+        StringBuilder listing = new StringBuilder("hits\tcommand\n");
+        for (CommandHash.Entry entry : entries.values()) {
+            listing.append(String.format("%4d\t%s%n", entry.hits(), entry.file().getPath()));
+        }
+        out.write(listing.toString().getBytes(StandardCharsets.UTF_8));
+        return 0;
+    }
+
+    /**
+     * Report the real, user and system time since a timed pipeline started, on stderr like bash.
+     * User and system time are those of the whole shell process and every child it reaped meanwhile.
+     */
+    private void reportTime(CpuTimes before, long start) {
+        long real = System.nanoTime() - start;
+        CpuTimes used = CpuTimes.now().since(before);
+        console.out().flush();
+        console.err().print("\nreal\t" + clock(real) + "\nuser\t" + clock(used.user().toNanos())
+                + "\nsys\t" + clock(used.system().toNanos()) + "\n");
+        console.err().flush();
+    }
+
+    /**
+     * A duration the way bash's time prints it, e.g. 0m1.250s
+     */
+    private String clock(long nanos) {
+        long millis = nanos / 1_000_000;
+        return String.format("%dm%d.%03ds", millis / 60_000, millis / 1000 % 60, millis % 1000);
+    }
+
+    /**
+     * Print the latency histograms: a table, or the JSON dump with -j. -r starts them over.
+     */
+    private int stats(List<String> arguments, InputStream in, OutputStream out, PrintStream err)
+            throws IOException {
+        if (!metrics.isEnabled()) {
+            err.println("stats: recording is off, start the shell with JAVA_SHELL_STATS=<file>");
+            return 1;
+        }
+        String option = arguments.size() > 1 ? arguments.get(1) : "";
+        switch (option) {
+            case "":
+                out.write(metrics.table().getBytes(StandardCharsets.UTF_8));
+                return 0;
+            case "-j":
+                out.write(metrics.toJson().getBytes(StandardCharsets.UTF_8));
+                return 0;
+            case "-r":
+                metrics.reset();
+                return 0;
+            default:
+                err.println("stats: " + option + ": invalid option");
+                err.println("stats: usage: stats [-j | -r]");
+                return 2;
+        }
+    }
+
+    /**
+     * Run the real program behind a builtin, for arguments the builtin does not handle itself.
+     * The child's streams are relayed through the builtin's own streams, except that output
+     * bound for the shell's own stdout, and unredirected input, are the shell's own
+     * descriptors, so the program sees the terminal.
+     */
+    private int runFallback(List<String> arguments, InputStream in, OutputStream out, PrintStream err)
+            throws IOException {
+        String name = arguments.get(0);
+        long lookup = metrics.start();
+        ProcessBuilder pb = launcher.builder(new ArrayList<>(arguments), currentDirectory);
+        metrics.record(Metrics.Stage.LOOKUP, lookup);
+        if (pb == null) {
+            err.println(name + ": command not found");
+            return 127;
+        }
+        boolean inherit = out instanceof ChannelOutputStream && ((ChannelOutputStream) out).isTerminal();
+        if (inherit) {
+            out.flush();
+            pb.redirectOutput(ProcessBuilder.Redirect.INHERIT);
+        }
+        boolean inheritInput = InputSource.isUnredirected(in);
+        if (inheritInput) {
+            pb.redirectInput(ProcessBuilder.Redirect.INHERIT);
+        }
+        long spawn = metrics.start();
+        Process process;
+        try {
+            process = launcher.start(pb);
+        } catch (Launcher.StartFailure e) {
+            err.println(e.getMessage());
+            return e.status();
+        }
+        metrics.record(Metrics.Stage.SPAWN, spawn);
+        long child = metrics.start();
+
+        Thread input = new Thread(() -> {
+            try (OutputStream stdin = process.getOutputStream()) {
+                in.transferTo(stdin);
+            } catch (IOException e) {
+                // the program exited without reading all of its input
+            }
+        }, "fallback-stdin");
+        Thread error = new Thread(() -> {
+            try {
+                process.getErrorStream().transferTo(err);
+            } catch (IOException e) {
+                // stderr closed early
+            }
+        }, "fallback-stderr");
+        input.setDaemon(true);
+        error.setDaemon(true);
+        if (!inheritInput) {
+            input.start();
+        }
+        error.start();
+
+        if (!inherit) {
+            process.getInputStream().transferTo(out);
+        }
+        try {
+            error.join();
+            int status = process.waitFor();
+            metrics.record(Metrics.Stage.CHILD, child);
+            return status;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroy();
+            return 130;
+        }
+    }
+
+    /**
+     * Read one line through the raw-mode line editor, or return null at end of input
+     */
+    private String readInteractiveLine(BufferedReader reader) throws IOException {
+        StringBuilder buffer = new StringBuilder();
+        int c;
+        boolean escapeMode = false;
+
+        // Track for double tab
+        boolean lastKeyWasTab = false;
+        List<String> tabCompletionMatches = new ArrayList<>();
+
+        // history entry shown by Up/Down
+        History.Cursor historyCursor = history.cursor();
+
+        while ((c = readKey(reader)) != '\n') {
+            if (c == -1) { // end of input
+                return null;
+            } else if (c == 27) { // start of an escape sequence
+                escapeMode = true;
+            } else if (escapeMode) {
+                // skip the [ or O and any parameters up to the final letter
+                if (c == '[' || c == 'O' || c == ';' || Character.isDigit(c)) {
+                    continue;
+                }
+                escapeMode = false;
+                lastKeyWasTab = false;
+
+                if (c == 'A' || c == 'B') {
+                    // Up: one entry older, Down: one newer and then back to the line being typed
+                    String entry = c == 'A' ? historyCursor.older(buffer) : historyCursor.newer();
+                    if (entry == null) {
+                        screen.bell();
+                        continue;
+                    }
+                    buffer = new StringBuilder(entry);
+                    screen.redrawLine("$ ", buffer);
+                }
+            } else if (c == 18) { // Ctrl-R
+                lastKeyWasTab = false;
+                historyCursor.reset();
+                int end = reverseSearch(reader, buffer);
+                if (end == -1) {
+                    return null;
+                }
+                if (end == '\n') {
+                    break;
+                }
+                escapeMode = end == 27;
+            } else if (c == '\t') { // tab key
+                // only the word under the cursor is completed, the rest of the line stays as typed
+                int wordStart = buffer.lastIndexOf(" ") + 1;
+                String before = buffer.substring(0, wordStart);
+                String input = buffer.substring(wordStart);
+                boolean commandWord = Completer.isCommandPosition(before);
+
+                if (lastKeyWasTab && !tabCompletionMatches.isEmpty()) {
+                    // matches are already sorted; paths are listed by name, without the directory part typed so far
+                    int nameStart = commandWord ? 0 : input.lastIndexOf('/') + 1;
+                    StringBuilder listing = new StringBuilder().append('\n');
+                    Completer.appendColumns(listing, tabCompletionMatches, nameStart, terminal.columns());
+                    screen.append(listing.append("$ ").append(buffer));
+                    tabCompletionMatches.clear();
+                    lastKeyWasTab = false;
+                    continue;
+                }
+
+                // Reset matches
+                tabCompletionMatches.clear();
+                long completion = metrics.start();
+                tabCompletionMatches.addAll(completer.complete(input, commandWord, currentDirectory));
+                metrics.record(Metrics.Stage.COMPLETION, completion);
+                String exactMatch = tabCompletionMatches.isEmpty() ? null : tabCompletionMatches.get(0);
+
+                // Handle matches
+                if (tabCompletionMatches.size() == 1) {
+                    // Single match, a directory stays open for the next component
+                    buffer = new StringBuilder(before).append(exactMatch);
+                    if (!exactMatch.endsWith("/")) {
+                        buffer.append(' ');
+                    }
+                    screen.redrawLine("$ ", buffer);
+                    tabCompletionMatches.clear();
+                    lastKeyWasTab = false;
+                } else if (tabCompletionMatches.size() > 1) {
+                    // Multiple matches
+                    String commonPrefix = Completer.longestCommonPrefix(tabCompletionMatches);
+
+                    // use common prefix if longer than current input
+                    if (commonPrefix.length() > input.length()) {
+                        buffer = new StringBuilder(before).append(commonPrefix);
+                        screen.redrawLine("$ ", buffer);
+                        // no space if multiple inputs use same prefix
+                        lastKeyWasTab = false;
+                    } else {
+                        // Multiple matches without a longer common prefix
+                        if (!lastKeyWasTab) {
+                            screen.bell();
+                            lastKeyWasTab = true;
+                        }
+                    }
+                } else {
+                    // No matches 
+                    screen.bell();
+                    lastKeyWasTab = false;
+                }
+            } else if (c == 127 || c == 8) { // Backspace
+                if (buffer.length() > 0) {
+                    buffer.deleteCharAt(buffer.length() - 1);
+                    screen.eraseLastChar();
+                }
+                lastKeyWasTab = false;
+            } else {
+                buffer.append((char) c);
+                screen.append((char) c);
+                lastKeyWasTab = false;
+            }
+        }
+
+        screen.append('\n');
+        screen.flush();
+        return buffer.toString();
+    }
+
+    /**
+     * Ctrl-R incremental search: typed characters narrow the query and Ctrl-R steps to older
+     * matches. The match is left in the buffer; returns the key that ended the search.
+     */
+    private int reverseSearch(BufferedReader reader, StringBuilder buffer) throws IOException {
+        String original = buffer.toString();
+        StringBuilder query = new StringBuilder();
+        int found = -1;
+        boolean failing = false;
+        screen.redrawLine("(reverse-i-search)`': ", "");
+
+        int c;
+        while (true) {
+            c = readKey(reader);
+            if (c == 18) { // Ctrl-R again: next older match
+                int next = found > 0 ? history.searchBackward(query.toString(), found - 1) : -1;
+                failing = next < 0;
+                found = failing ? found : next;
+            } else if (c == 127 || c == 8) { // Backspace widens the query, searching from the newest again
+                if (query.length() > 0) {
+                    query.deleteCharAt(query.length() - 1);
+                }
+                found = query.length() == 0 ? -1 : history.searchBackward(query.toString(), history.size() - 1);
+                failing = query.length() > 0 && found < 0;
+            } else if (c >= 32) { // the current match is kept while it still contains the query
+                query.append((char) c);
+                int next = history.searchBackward(query.toString(), found < 0 ? history.size() - 1 : found);
+                failing = next < 0;
+                found = failing ? found : next;
+            } else if (c == 7 || c == 27) { // Ctrl-G or Escape put the line back
+                buffer.setLength(0);
+                buffer.append(original);
+                screen.redrawLine("$ ", buffer);
+                return c;
+            } else { // Enter, end of input or any other control key takes the match
+                break;
+            }
+
+            if (failing) {
+                screen.bell();
+            }
+            screen.redrawLine((failing ? "(failed reverse-i-search)`" : "(reverse-i-search)`") + query + "': ",
+                    found < 0 ? "" : history.get(found));
+        }
+
+        if (found >= 0) {
+            buffer.setLength(0);
+            buffer.append(history.get(found));
+        }
+        screen.redrawLine("$ ", buffer);
+        return c;
+    }
+
+    /**
+     * Read the next key, repainting the screen only once every pending key has been handled
+     */
+    private int readKey(BufferedReader reader) throws IOException {
+        if (!reader.ready()) {
+            screen.flush();
+        }
+        return reader.read();
+    }
+}
@@ -0,0 +1,152 @@
+package shell;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Switches the controlling terminal into raw mode for the line editor and back.
+ * The original settings are saved once and restored exactly, either on a normal
+ * exit or from a shutdown hook. When stdin is not a terminal nothing is changed
+ * and the shell reads its input line by line. For a terminal forwarded by a daemon client
+ * the client switches its own terminal and reports the width; nothing runs stty here.
+ */
+public class TerminalMode {
+    // width assumed when the terminal cannot tell us
+    private static final int DEFAULT_COLUMNS = 80;
+
+    private final boolean interactive;
+    // width reported by a daemon client, 0 for the process's own terminal
+    private final int forwardedColumns;
+    // width of the process's own terminal, read once, 0 until then
+    private int columns;
+    private String savedSettings;
+    private Thread shutdownHook;
+
+    private TerminalMode(boolean interactive, int forwardedColumns) {
+        this.interactive = interactive;
+        this.forwardedColumns = forwardedColumns;
+    }
+
+    /**
+     * Create a controller for the current process, raw mode is only possible on a terminal
+     */
+    public static TerminalMode detect() {
+        return new TerminalMode(System.console() != null, 0);
+    }
+
+    /**
+     * A terminal on the far side of a socket, already in raw mode when interactive
+     */
+    public static TerminalMode forwarded(boolean interactive, int columns) {
+        TerminalMode terminal = new TerminalMode(interactive, columns > 0 ? columns : DEFAULT_COLUMNS);
+        if (interactive) {
+            terminal.savedSettings = "";
+        }
+        return terminal;
+    }
+
+    public boolean isInteractive() {
+        return interactive;
+    }
+
+    public synchronized boolean isRawMode() {
+        return savedSettings != null;
+    }
+
+    /**
+     * Disable echo and canonical input, remembering the settings to restore later
+     */
+    public synchronized void enterRawMode() {
+        if (!interactive || savedSettings != null || forwardedColumns > 0) {
+            return;
+        }
+        try {
+            String settings = stty("-g").trim();
+            stty("-echo", "-icanon", "min", "1");
+            savedSettings = settings;
+            columns = readColumns();
+        } catch (IOException e) {
+            // without stty the shell still works, reading plain lines
+            return;
+        }
+        shutdownHook = new Thread(this::restore, "terminal-restore");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Put the terminal back the way it was, safe to call more than once
+     */
+    public synchronized void restore() {
+        if (savedSettings == null || forwardedColumns > 0) {
+            return;
+        }
+        try {
+            stty(savedSettings);
+        } catch (IOException e) {
+            // the terminal is gone, there is nothing left to restore
+        }
+        savedSettings = null;
+        if (shutdownHook != null && Thread.currentThread() != shutdownHook) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // already shutting down
+            }
+        }
+    }
+
+    /**
+     * Width of the terminal in columns, as read when raw mode was entered. A window resized
+     * since then is not noticed: that takes SIGWINCH, which the JDK offers no supported way to catch.
+     */
+    public synchronized int columns() {
+        if (forwardedColumns > 0) {
+            return forwardedColumns;
+        }
+        if (columns == 0) {
+            columns = interactive ? readColumns() : DEFAULT_COLUMNS;
+        }
+        return columns;
+    }
+
+    private static int readColumns() {
+        try {
+            // stty size prints "rows columns"
+            String[] size = stty("size").trim().split(" ");
+            int columns = Integer.parseInt(size[size.length - 1]);
+            if (columns > 0) {
+                return columns;
+            }
+        } catch (IOException | NumberFormatException e) {
+            // fall back to the default width
+        }
+        return DEFAULT_COLUMNS;
+    }
+
+    /**
+     * Run stty directly against our stdin, without a wrapper shell, and return its output
+     */
+    private static String stty(String... args) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add("stty");
+        command.addAll(Arrays.asList(args));
+
+        ProcessBuilder pb = new ProcessBuilder(command);
+        pb.redirectInput(ProcessBuilder.Redirect.INHERIT);
+        pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+        Process process = pb.start();
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        try {
+            if (process.waitFor() != 0) {
+                throw new IOException("stty exited with status " + process.exitValue());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while running stty", e);
+        }
+        return output;
+    }
+}
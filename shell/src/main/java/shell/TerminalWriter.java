@@ -0,0 +1,81 @@
+package shell;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Buffered screen output for the line editor.
+ * Updates are composed in memory and reach the terminal in a single write on flush.
+ */
+public class TerminalWriter {
+    private static final byte[] ERASE_LAST_CHAR = { '\b', ' ', '\b' };
+    private static final byte[] CLEAR_TO_END_OF_LINE = { 27, '[', 'K' };
+
+    private final OutputStream out;
+    private byte[] buffer = new byte[4096];
+    private int length;
+
+    public TerminalWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    public TerminalWriter append(char c) {
+        if (c < 0x80) {
+            ensureCapacity(1);
+            buffer[length++] = (byte) c;
+            return this;
+        }
+        return append(String.valueOf(c));
+    }
+
+    public TerminalWriter append(CharSequence text) {
+        return append(text.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private TerminalWriter append(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        length += bytes.length;
+        return this;
+    }
+
+    /**
+     * Ring the terminal bell
+     */
+    public TerminalWriter bell() {
+        return append('\7');
+    }
+
+    /**
+     * Remove the character left of the cursor
+     */
+    public TerminalWriter eraseLastChar() {
+        return append(ERASE_LAST_CHAR);
+    }
+
+    /**
+     * Repaint the current line as prompt plus text, clearing anything left over from before
+     */
+    public TerminalWriter redrawLine(String prompt, CharSequence text) {
+        return append('\r').append(prompt).append(text).append(CLEAR_TO_END_OF_LINE);
+    }
+
+    /**
+     * Send everything composed so far to the terminal in one write
+     */
+    public void flush() throws IOException {
+        if (length > 0) {
+            out.write(buffer, 0, length);
+            length = 0;
+        }
+        out.flush();
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package shell;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * The wc builtin for -l, -w and -c, counted byte by byte over chunked reads. A byte
+ * count alone is the file's size and reads nothing. Output is laid out like GNU wc,
+ * any other option runs the real wc.
+ */
+public class Wc implements Builtin {
+    private static final int LINES = 0;
+    private static final int WORDS = 1;
+    private static final int BYTES = 2;
+
+    private final Supplier<Path> directory;
+    private final Builtin fallback;
+
+    public Wc(Supplier<Path> directory, Builtin fallback) {
+        this.directory = directory;
+        this.fallback = fallback;
+    }
+
+    @Override
+    public int run(List<String> arguments, InputStream in, OutputStream out, PrintStream err) throws IOException {
+        boolean[] selected = new boolean[3];
+        List<String> files = new ArrayList<>();
+        boolean options = true;
+        for (String argument : arguments.subList(1, arguments.size())) {
+            if (options && argument.equals("--")) {
+                options = false;
+            } else if (options && argument.equals("--lines")) {
+                selected[LINES] = true;
+            } else if (options && argument.equals("--words")) {
+                selected[WORDS] = true;
+            } else if (options && argument.equals("--bytes")) {
+                selected[BYTES] = true;
+            } else if (options && argument.length() > 1 && argument.charAt(0) == '-') {
+                for (int i = 1; i < argument.length(); i++) {
+                    int count = "lwc".indexOf(argument.charAt(i));
+                    if (count < 0) {
+                        return fallback.run(arguments, in, out, err);
+                    }
+                    selected[count] = true;
+                }
+            } else {
+                files.add(argument);
+            }
+        }
+        if (!selected[LINES] && !selected[WORDS] && !selected[BYTES]) {
+            selected[LINES] = selected[WORDS] = selected[BYTES] = true;
+        }
+        boolean standardInput = files.isEmpty();
+        if (standardInput) {
+            files.add("-");
+        }
+        // the shell's own stdin can only be handed to a child, so the real wc reads it
+        if (InputSource.isUnredirected(in) && files.contains("-")) {
+            return fallback.run(arguments, in, out, err);
+        }
+
+        Path workingDirectory = directory.get();
+        int width = numberWidth(workingDirectory, files, selected);
+        int status = 0;
+        long[] total = new long[3];
+        for (String file : files) {
+            long[] counts = new long[3];
+            if (file.equals("-")) {
+                Chunks.read(in, new Counter(counts, selected));
+            } else {
+                FileChannel channel;
+                try {
+                    channel = Chunks.open(workingDirectory, file);
+                } catch (IOException e) {
+                    err.println("wc: " + file + ": " + Chunks.reason(e));
+                    status = 1;
+                    continue;
+                }
+                // a file that fails while reading, such as a directory, still gets its line
+                try (channel) {
+                    count(channel, counts, selected);
+                } catch (IOException e) {
+                    err.println("wc: " + file + ": " + Chunks.reason(e));
+                    status = 1;
+                }
+            }
+            for (int i = 0; i < 3; i++) {
+                total[i] += counts[i];
+            }
+            writeCounts(out, counts, selected, width, standardInput ? null : file);
+        }
+        if (files.size() > 1) {
+            writeCounts(out, total, selected, width, "total");
+        }
+        return status;
+    }
+
+    private static void count(FileChannel channel, long[] counts, boolean[] selected) throws IOException {
+        long size = channel.size();
+        // pseudo-files such as /proc entries report no size and have to be read
+        if (!selected[LINES] && !selected[WORDS] && size > 0) {
+            counts[BYTES] = size;
+            return;
+        }
+        Chunks.read(channel, new Counter(counts, selected));
+    }
+
+    /**
+     * Counts lines, words and bytes across chunks, a word may span two of them
+     */
+    private static final class Counter implements Chunks.Consumer {
+        private final long[] counts;
+        private final boolean linesOnly;
+        private boolean inWord;
+
+        Counter(long[] counts, boolean[] selected) {
+            this.counts = counts;
+            this.linesOnly = !selected[WORDS];
+        }
+
+        @Override
+        public boolean accept(byte[] buffer, int length) {
+            long lines = 0;
+            if (linesOnly) {
+                for (int i = 0; i < length; i++) {
+                    if (buffer[i] == '\n') {
+                        lines++;
+                    }
+                }
+            } else {
+                long words = 0;
+                boolean word = inWord;
+                for (int i = 0; i < length; i++) {
+                    byte b = buffer[i];
+                    if (b == '\n') {
+                        lines++;
+                        word = false;
+                    } else if (b == ' ' || (b >= '\t' && b <= '\r')) {
+                        word = false;
+                    } else if (!word) {
+                        word = true;
+                        words++;
+                    }
+                }
+                inWord = word;
+                counts[WORDS] += words;
+            }
+            counts[LINES] += lines;
+            counts[BYTES] += length;
+            return true;
+        }
+    }
+
+    /**
+     * Column width GNU wc would use: wide enough for the total size of the regular files,
+     * at least 7 when any input is not a regular file, and 1 for a single count of a single input
+     */
+    private static int numberWidth(Path workingDirectory, List<String> files, boolean[] selected) {
+        int counts = (selected[LINES] ? 1 : 0) + (selected[WORDS] ? 1 : 0) + (selected[BYTES] ? 1 : 0);
+        if (files.size() == 1 && counts == 1) {
+            return 1;
+        }
+
+        int minimum = 1;
+        long regularTotal = 0;
+        for (int i = 0; i < files.size(); i++) {
+            String file = files.get(i);
+            if (file.equals("-")) {
+                minimum = 7;
+                continue;
+            }
+            try {
+                BasicFileAttributes attributes =
+                        Files.readAttributes(workingDirectory.resolve(file), BasicFileAttributes.class);
+                if (attributes.isRegularFile()) {
+                    regularTotal += attributes.size();
+                } else {
+                    minimum = 7;
+                }
+            } catch (IOException e) {
+                // GNU wc gives up on the width when the first file cannot be read
+                if (i == 0) {
+                    return 1;
+                }
+            }
+        }
+        int width = 1;
+        for (; regularTotal >= 10; regularTotal /= 10) {
+            width++;
+        }
+        return Math.max(width, minimum);
+    }
+
+    private static void writeCounts(OutputStream out, long[] counts, boolean[] selected, int width, String name)
+            throws IOException {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < 3; i++) {
+            if (!selected[i]) {
+                continue;
+            }
+            if (line.length() > 0) {
+                line.append(' ');
+            }
+            String number = Long.toString(counts[i]);
+            for (int pad = number.length(); pad < width; pad++) {
+                line.append(' ');
+            }
+            line.append(number);
+        }
+        if (name != null) {
+            line.append(' ').append(name);
+        }
+        line.append('\n');
+        out.write(line.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,86 @@
+package shell;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BuiltinStdinTest {
+    @TempDir
+    Path directory;
+
+    // stands in for the real program, recording the arguments it was handed
+    private final List<List<String>> fallbackCalls = new ArrayList<>();
+    private final Builtin fallback = (arguments, in, out, err) -> {
+        fallbackCalls.add(arguments);
+        return 0;
+    };
+
+    @Test
+    void scriptReadsThePipedStdin() throws Exception {
+        Path script = directory.resolve("script.sh");
+        Files.writeString(script, "wc -l\n");
+        assertEquals("3\n", runShell(script, "a\nb\nc\n"));
+
+        Files.writeString(script, "head -n 1\n");
+        assertEquals("a\n", runShell(script, "a\nb\nc\n"));
+
+        Files.writeString(script, "grep b\n");
+        assertEquals("b\n", runShell(script, "a\nb\nc\n"));
+    }
+
+    @Test
+    void unredirectedStdinGoesToTheRealProgram() throws IOException {
+        assertEquals("", run(new Wc(() -> directory, fallback), List.of("wc", "-l"), InputSource.unredirected()));
+        assertEquals("", run(new Head(() -> directory, fallback), List.of("head", "-"), InputSource.unredirected()));
+        assertEquals("", run(new Grep(() -> directory, fallback), List.of("grep", "x"), InputSource.unredirected()));
+        assertEquals(3, fallbackCalls.size());
+        assertEquals(List.of("head", "-"), fallbackCalls.get(1));
+    }
+
+    @Test
+    void redirectedStdinIsReadInProcess() throws IOException {
+        Function<String, InputStream> text = s -> new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8));
+        assertEquals("2\n", run(new Wc(() -> directory, fallback), List.of("wc", "-l"), text.apply("a\nb\n")));
+        assertEquals("a\n", run(new Head(() -> directory, fallback), List.of("head", "-n", "1"), text.apply("a\nb\n")));
+        assertEquals("b\n", run(new Grep(() -> directory, fallback), List.of("grep", "b"), text.apply("a\nb\n")));
+        assertEquals(0, fallbackCalls.size());
+    }
+
+    private static String run(Builtin builtin, List<String> arguments, InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        builtin.run(arguments, in, out, new PrintStream(OutputStream.nullOutputStream()));
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Run a script through the shell in a child JVM, with the given text piped into its stdin
+     */
+    private String runShell(Path script, String stdin) throws Exception {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        ProcessBuilder pb = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                "shell.Main", script.toString());
+        pb.directory(directory.toFile());
+        pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+        Process process = pb.start();
+        try (OutputStream in = process.getOutputStream()) {
+            in.write(stdin.getBytes(StandardCharsets.UTF_8));
+        }
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        process.waitFor();
+        return output;
+    }
+}
@@ -0,0 +1,41 @@
+package shell;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CatTest {
+    @TempDir
+    Path directory;
+
+    private final Cat cat = new Cat(() -> directory, (arguments, in, out, err) -> {
+        throw new IllegalStateException("fell back to the real cat");
+    });
+
+    @Test
+    void reportsEachBadOperandAndCopiesTheRest() throws IOException {
+        Files.writeString(directory.resolve("a"), "one\n");
+        Files.writeString(directory.resolve("b"), "two\n");
+        Files.createDirectory(directory.resolve("d"));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        int status = cat.run(List.of("cat", "a", "d", "missing", "b"), InputStream.nullInputStream(), out,
+                new PrintStream(err, true, StandardCharsets.UTF_8));
+
+        assertEquals(1, status);
+        assertEquals("one\ntwo\n", out.toString(StandardCharsets.UTF_8));
+        assertEquals("cat: d: Is a directory\ncat: missing: No such file or directory\n",
+                err.toString(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,62 @@
+package shell;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class CompleterTest {
+    @Test
+    void commandPosition() {
+        assertTrue(Completer.isCommandPosition(""));
+        assertTrue(Completer.isCommandPosition("  "));
+        assertTrue(Completer.isCommandPosition("cat f | "));
+        assertTrue(Completer.isCommandPosition("cat f |"));
+        assertFalse(Completer.isCommandPosition("cat "));
+        assertFalse(Completer.isCommandPosition("cat f > "));
+
+        // after every list operator, and after the time keyword in command position
+        assertTrue(Completer.isCommandPosition("cd /tmp; "));
+        assertTrue(Completer.isCommandPosition("make && "));
+        assertTrue(Completer.isCommandPosition("make || "));
+        assertTrue(Completer.isCommandPosition("sleep 5 & "));
+        assertTrue(Completer.isCommandPosition("time "));
+        assertTrue(Completer.isCommandPosition("a | time "));
+        assertFalse(Completer.isCommandPosition("echo time "));
+        assertFalse(Completer.isCommandPosition("cmd >& "));
+    }
+
+    @Test
+    void longestCommonPrefix() {
+        assertEquals("", Completer.longestCommonPrefix(List.of()));
+        assertEquals("git", Completer.longestCommonPrefix(List.of("git")));
+        assertEquals("git-", Completer.longestCommonPrefix(List.of("git-add", "git-bisect", "git-commit")));
+        assertEquals("", Completer.longestCommonPrefix(List.of("a", "b")));
+        assertEquals("ab", Completer.longestCommonPrefix(List.of("ab", "abc")));
+    }
+
+    @Test
+    void columnsRunDownThenAcross() {
+        StringBuilder out = new StringBuilder();
+        Completer.appendColumns(out, List.of("a", "bb", "c", "d", "e"), 0, 12);
+        // columns are 4 wide, so 3 fit: two rows
+        assertEquals("a   c   e\nbb  d\n", out.toString());
+    }
+
+    @Test
+    void columnsSkipTypedDirectory() {
+        StringBuilder out = new StringBuilder();
+        Completer.appendColumns(out, List.of("dir/one", "dir/two"), 4, 80);
+        assertEquals("one  two\n", out.toString());
+    }
+
+    @Test
+    void narrowTerminalGivesOneColumn() {
+        StringBuilder out = new StringBuilder();
+        Completer.appendColumns(out, List.of("longname", "other"), 0, 5);
+        assertEquals("longname\nother\n", out.toString());
+    }
+}
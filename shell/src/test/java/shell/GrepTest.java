@@ -0,0 +1,39 @@
+package shell;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class GrepTest {
+    @TempDir
+    Path directory;
+
+    private final Grep grep = new Grep(() -> directory, (arguments, in, out, err) -> {
+        throw new IllegalStateException("fell back to the real grep");
+    });
+
+    @Test
+    void binaryMatchIsReportedOnStderr() throws IOException {
+        Files.write(directory.resolve("data"), new byte[] {'a', 0, 'b', '\n', 'a', '\n'});
+        Files.writeString(directory.resolve("text"), "a\n");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        int status = grep.run(List.of("grep", "a", "data", "text"), InputStream.nullInputStream(), out,
+                new PrintStream(err, true, StandardCharsets.UTF_8));
+
+        assertEquals(0, status);
+        assertEquals("text:a\n", out.toString(StandardCharsets.UTF_8));
+        assertEquals("grep: data: binary file matches\n", err.toString(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,68 @@
+package shell;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class HistogramTest {
+    @Test
+    void emptyHistogramReportsZero() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.min());
+        assertEquals(0, histogram.mean());
+        assertEquals(0, histogram.percentile(0.99));
+        assertEquals(0, histogram.buckets().length);
+    }
+
+    @Test
+    void smallValuesAreExact() {
+        Histogram histogram = new Histogram();
+        for (long value = 0; value < 8; value++) {
+            histogram.record(value);
+        }
+        assertEquals(8, histogram.buckets().length);
+        assertEquals(3, histogram.percentile(0.5));
+        assertEquals(7, histogram.percentile(1.0));
+    }
+
+    @Test
+    void bucketsAreAtMostAnEighthWide() {
+        for (long value : new long[] {9, 100, 1_000, 123_456, 1_000_000_007L, Long.MAX_VALUE / 3}) {
+            Histogram histogram = new Histogram();
+            histogram.record(value);
+            long[][] buckets = histogram.buckets();
+            assertEquals(1, buckets.length);
+            long upper = buckets[0][0];
+            assertTrue(upper >= value, value + " above its bucket " + upper);
+            assertTrue(upper - value <= value / 8, value + " in a bucket up to " + upper);
+        }
+    }
+
+    @Test
+    void percentilesAreCappedByMax() {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1_000L);
+        }
+        assertEquals(100, histogram.count());
+        assertEquals(1_000, histogram.min());
+        assertEquals(100_000, histogram.max());
+        assertEquals(50_500, histogram.mean());
+        long p50 = histogram.percentile(0.5);
+        assertTrue(p50 >= 50_000 && p50 <= 50_000 + 50_000 / 8, "p50 " + p50);
+        assertEquals(100_000, histogram.percentile(1.0));
+    }
+
+    @Test
+    void resetClearsEverything() {
+        Histogram histogram = new Histogram();
+        histogram.record(5);
+        histogram.record(-3);
+        assertEquals(0, histogram.min());
+        histogram.reset();
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.max());
+    }
+}
@@ -0,0 +1,114 @@
+package shell;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class HistoryTest {
+    @TempDir
+    Path directory;
+
+    private History history(int capacity) {
+        return new History(directory.resolve("history"), capacity);
+    }
+
+    @Test
+    void ringKeepsNewestEntries() {
+        History history = history(3);
+        for (String line : List.of("a", "b", "c", "d", "e")) {
+            history.add(line);
+        }
+        assertEquals(3, history.size());
+        assertEquals("c", history.get(0));
+        assertEquals("e", history.get(2));
+    }
+
+    @Test
+    void getRejectsPositionsOutsideTheRing() {
+        History history = history(4);
+        assertThrows(IndexOutOfBoundsException.class, () -> history.get(0));
+        history.add("a");
+        assertThrows(IndexOutOfBoundsException.class, () -> history.get(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> history.get(-1));
+    }
+
+    @Test
+    void skipsImmediateRepeats() {
+        History history = history(4);
+        history.add("a");
+        history.add("a");
+        history.add("b");
+        history.add("a");
+        assertEquals(3, history.size());
+    }
+
+    @Test
+    void searchesBackwardFromPosition() {
+        History history = history(8);
+        for (String line : List.of("make", "ls", "make test", "cd")) {
+            history.add(line);
+        }
+        assertEquals(2, history.searchBackward("make", 3));
+        assertEquals(0, history.searchBackward("make", 1));
+        assertEquals(-1, history.searchBackward("git", 3));
+        assertEquals(-1, history(2).searchBackward("x", 5));
+    }
+
+    @Test
+    void cursorOnEmptyHistory() {
+        History.Cursor cursor = history(4).cursor();
+        assertNull(cursor.older("typed"));
+        assertNull(cursor.newer());
+        assertNull(cursor.older("typed"));
+    }
+
+    @Test
+    void cursorWalksBackAndReturnsToDraft() {
+        History history = history(4);
+        history.add("one");
+        history.add("two");
+        History.Cursor cursor = history.cursor();
+        assertEquals("two", cursor.older("draft"));
+        assertEquals("one", cursor.older("two"));
+        assertNull(cursor.older("one"));
+        assertEquals("two", cursor.newer());
+        assertEquals("draft", cursor.newer());
+        assertNull(cursor.newer());
+        assertEquals("two", cursor.older("draft"));
+        cursor.reset();
+        assertNull(cursor.newer());
+    }
+
+    @Test
+    void loadsOnlyTheTailOfTheFile() throws IOException {
+        StringBuilder file = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            file.append("command ").append(i).append('\n');
+        }
+        Files.write(directory.resolve("history"), file.toString().getBytes(StandardCharsets.UTF_8));
+        History history = history(10);
+        assertEquals(10, history.size());
+        assertEquals("command 990", history.get(0));
+        assertEquals("command 999", history.get(9));
+    }
+
+    @Test
+    void flushAppendsNewEntries() throws IOException {
+        Path file = directory.resolve("history");
+        Files.write(file, "old\n".getBytes(StandardCharsets.UTF_8));
+        History history = history(10);
+        history.add("new");
+        history.flush();
+        assertEquals(List.of("old", "new"), Files.readAllLines(file));
+        assertEquals(List.of("old", "new"), List.of(history(10).get(0), history(10).get(1)));
+    }
+}
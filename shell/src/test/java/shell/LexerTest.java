@@ -0,0 +1,118 @@
+package shell;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class LexerTest {
+    private final Lexer lexer = new Lexer(Environment.of(Map.of("NAME", "world", "EMPTY", "", "LIST", " a  b\tc ")));
+
+    private List<String> tokens(String line) {
+        lexer.lex(line);
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < lexer.size(); i++) {
+            tokens.add(lexer.type(i) == Lexer.Type.WORD ? lexer.text(i) : "(" + lexer.text(i) + ")");
+        }
+        return tokens;
+    }
+
+    @Test
+    void splitsWordsOnBlanks() {
+        assertEquals(List.of("echo", "a", "b"), tokens("  echo a\t b  "));
+    }
+
+    @Test
+    void quotesAndEscapesJoinWords() {
+        assertEquals(List.of("echo", "a b", "c d", "e f", "$NAME"), tokens("echo 'a b' \"c d\" e\\ f '$NAME'"));
+        assertEquals(List.of("echo", "", "x"), tokens("echo '' x"));
+    }
+
+    @Test
+    void backslashInDoubleQuotesOnlyEscapesSpecials() {
+        assertEquals(List.of("echo", "a\"b\\n$"), tokens("echo \"a\\\"b\\n\\$\""));
+    }
+
+    @Test
+    void expandsVariables() {
+        assertEquals(List.of("echo", "world", "hello-world!"), tokens("echo $NAME hello-${NAME}!"));
+        assertEquals(List.of("echo", "world"), tokens("echo \"$NAME\""));
+        // an unset or empty variable on its own leaves no word behind
+        assertEquals(List.of("echo"), tokens("echo $EMPTY $UNSET"));
+        assertEquals(List.of("echo", ""), tokens("echo \"$EMPTY\""));
+        assertEquals(List.of("echo", "$", "${x"), tokens("echo $ ${x"));
+    }
+
+    @Test
+    void splitsUnquotedExpansions() {
+        assertEquals(List.of("echo", "a", "b", "c"), tokens("echo $LIST"));
+        assertEquals(List.of("echo", "x", "a", "b", "c", "y"), tokens("echo x$LIST y"));
+        assertEquals(List.of("echo", "x", "a", "b", "c", "y"), tokens("echo x${LIST}y"));
+        assertEquals(List.of("echo", "''", "a", "b", "c"), tokens("echo \"''\"$LIST"));
+        assertEquals(List.of("echo", " a  b\tc "), tokens("echo \"$LIST\""));
+        // not in the word of a redirection, nor in an assignment
+        assertEquals(List.of("cat", "(<<<)", " a  b\tc "), tokens("cat <<< $LIST"));
+        assertEquals(List.of("X= a  b\tc "), tokens("X=$LIST"));
+    }
+
+    @Test
+    void splitsOnlyAtWhitespaceOfIfs() {
+        Lexer custom = new Lexer(Environment.of(Map.of("IFS", ":\t", "PATHS", "a b:c\td")));
+        custom.lex("ls $PATHS");
+        assertEquals(3, custom.size());
+        assertEquals("a b:c", custom.text(1));
+        assertEquals("d", custom.text(2));
+    }
+
+    @Test
+    void operatorsNeedNoSpaces() {
+        assertEquals(List.of("a", "(|)", "b", "(>>)", "f", "(2>>)", "g", "(<)", "h"), tokens("a|b>>f 2>>g<h"));
+        assertEquals(List.of("a", "(&>>)", "f"), tokens("a &>>f"));
+    }
+
+    @Test
+    void redirectDescriptors() {
+        lexer.lex("cmd 2>err >&2 2>&1 '2'>q");
+        assertEquals(Lexer.Type.REDIRECT, lexer.type(1));
+        assertEquals(2, lexer.fd(1));
+        assertEquals(Lexer.Type.DUPLICATE, lexer.type(3));
+        assertEquals(1, lexer.fd(3));
+        assertEquals(2, lexer.targetFd(3));
+        assertEquals(2, lexer.fd(4));
+        assertEquals(1, lexer.targetFd(4));
+        // a quoted number is a word, not a descriptor
+        assertEquals("2", lexer.text(5));
+        assertEquals(1, lexer.fd(6));
+    }
+
+    @Test
+    void stopsAfterListOperator() {
+        String line = "a x && b; c";
+        lexer.lex(line, 0);
+        assertEquals(Lexer.Type.AND, lexer.type(lexer.size() - 1));
+        assertEquals("a x", line.substring(0, lexer.textEnd()).trim());
+        lexer.lex(line, lexer.end());
+        assertEquals(Lexer.Type.SEMICOLON, lexer.type(lexer.size() - 1));
+        lexer.lex(line, lexer.end());
+        assertEquals(List.of("c"), tokens(line.substring(lexer.end() - 1).trim()));
+    }
+
+    @Test
+    void hereDocumentOperators() {
+        assertEquals(List.of("cat", "(<<<)", "x", "(<<-)", "EOF", "(<<)", "END"), tokens("cat <<< x <<-EOF << END"));
+        lexer.lex("cat << 'EOF'");
+        assertTrue(lexer.isQuoted(2));
+        lexer.lex("cat << EOF");
+        assertFalse(lexer.isQuoted(2));
+    }
+
+    @Test
+    void expandsHereDocumentBodies() {
+        assertEquals("hi world $x \\n\n", lexer.expand("hi $NAME \\$x \\n\n"));
+    }
+}
@@ -0,0 +1,160 @@
+package shell;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class ParserTest {
+    private final Environment environment = Environment.of(Map.of("X", "1"));
+    private final Parser parser = new Parser(environment);
+
+    @Test
+    void splitsPipelineIntoStages() throws Parser.SyntaxError {
+        List<Command> stages = parser.parse("cat f | grep -v x | wc -l");
+        assertEquals(3, stages.size());
+        assertEquals(List.of("grep", "-v", "x"), stages.get(1).arguments());
+    }
+
+    @Test
+    void appliesRedirections() throws Parser.SyntaxError {
+        Command command = parser.parse("cmd > out 2>> err < in").get(0);
+        assertEquals(List.of("cmd"), command.arguments());
+        assertEquals("out", command.outputRedirectPath());
+        assertFalse(command.appendOutput());
+        assertEquals("err", command.errorRedirectPath());
+        assertTrue(command.appendError());
+        assertTrue(command.hasInput());
+
+        Command both = parser.parse("cmd > out 2>&1").get(0);
+        assertTrue(both.errorToOutput());
+        assertEquals("out", both.errorRedirectPath());
+    }
+
+    @Test
+    void sendsOutputToError() throws Parser.SyntaxError {
+        Command toTerminal = parser.parse("cmd >&2").get(0);
+        assertTrue(toTerminal.outputToError());
+        assertTrue(toTerminal.hasOutput());
+        assertEquals(Redirection.ERROR, toTerminal.stdout(Paths.get("/")));
+
+        // stdout takes stderr's target as it is then, later redirections move only their own stream
+        Command toFile = parser.parse("cmd 2> err 1>&2 2> other").get(0);
+        assertFalse(toFile.outputToError());
+        assertEquals("err", toFile.outputRedirectPath());
+        assertEquals("other", toFile.errorRedirectPath());
+
+        Command moved = parser.parse("cmd >&2 2> err").get(0);
+        assertTrue(moved.outputToError());
+        assertEquals("err", moved.errorRedirectPath());
+    }
+
+    @Test
+    void handsOutListPipelinesWithConditions() throws Parser.SyntaxError {
+        parser.begin("a && b || c; d &");
+        assertEquals(List.of("a"), parser.next().get(0).arguments());
+        assertEquals(Parser.Condition.ALWAYS, parser.condition());
+        assertEquals(List.of("b"), parser.next().get(0).arguments());
+        assertEquals(Parser.Condition.IF_SUCCESS, parser.condition());
+        assertEquals(List.of("c"), parser.next().get(0).arguments());
+        assertEquals(Parser.Condition.IF_FAILURE, parser.condition());
+        assertEquals(List.of("d"), parser.next().get(0).arguments());
+        assertTrue(parser.isBackground());
+        assertEquals("d", parser.text());
+        assertFalse(parser.hasNext());
+    }
+
+    @Test
+    void expandsEachPipelineWhenReached() throws Parser.SyntaxError {
+        parser.begin("X=2; echo $X");
+        parser.next();
+        environment.set("X", "2");
+        assertEquals(List.of("echo", "2"), parser.next().get(0).arguments());
+    }
+
+    @Test
+    void rejectsMisplacedOperators() {
+        assertSyntaxError("|", "| a");
+        assertSyntaxError("|", "a |");
+        assertSyntaxError("|", "a | | b");
+        assertSyntaxError("newline", "a >");
+        assertSyntaxError("|", "a > | b");
+        assertSyntaxError("&&", "&& a");
+        assertSyntaxError("newline", "a &&");
+        assertSyntaxError("3>", "a 3> f");
+        assertSyntaxError("|", "echo hi && |");
+        assertSyntaxError(";", "a; ;");
+        assertSyntaxError("newline", "a || b &&  ");
+    }
+
+    @Test
+    void checkAcceptsWellFormedLines() throws Parser.SyntaxError {
+        parser.check("a | b > f 2>&1 && c <<< x || d & e;");
+        // an unset variable may be set by an earlier pipeline of the same line
+        parser.check("Y=z; $Y | cat");
+        parser.check("   ");
+    }
+
+    @Test
+    void timeIsAPipelinePrefix() throws Parser.SyntaxError {
+        List<Command> stages = parser.parse("time a | b");
+        assertTrue(parser.isTimed());
+        assertEquals(2, stages.size());
+        assertEquals(List.of("a"), stages.get(0).arguments());
+
+        // only as the first unquoted word
+        assertEquals(List.of("time", "x"), parser.parse("'time' x").get(0).arguments());
+        assertFalse(parser.isTimed());
+        assertEquals(List.of("time"), parser.parse("a | time").get(1).arguments());
+        assertFalse(parser.isTimed());
+
+        assertTrue(parser.parse("time").isEmpty());
+        assertTrue(parser.isTimed());
+        assertSyntaxError("|", "time | a");
+    }
+
+    @Test
+    void findsHereDocuments() {
+        List<Parser.HereDocument> documents = parser.hereDocuments("cat << A; cat <<-B <<< c");
+        assertEquals(2, documents.size());
+        assertEquals("A", documents.get(0).delimiter());
+        assertFalse(documents.get(0).stripTabs());
+        assertEquals("B", documents.get(1).delimiter());
+        assertTrue(documents.get(1).stripTabs());
+    }
+
+    @Test
+    void hereDocumentBodiesExpandUnlessQuoted() throws Exception {
+        parser.begin("cat << A; cat << 'B'", List.of("x=$X\n", "y=$X\n"));
+        assertEquals("x=1\n", stdin(parser.next().get(0)));
+        assertEquals("y=$X\n", stdin(parser.next().get(0)));
+    }
+
+    private static String stdin(Command command) throws IOException {
+        try (InputStream in = command.stdin(Paths.get("/")).open(InputStream.nullInputStream())) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private void assertSyntaxError(String token, String line) {
+        // refused up front by check(), and by next() when it gets that far
+        Parser.SyntaxError early = assertThrows(Parser.SyntaxError.class, () -> parser.check(line));
+        assertEquals("syntax error near unexpected token `" + token + "'", early.getMessage());
+        Parser.SyntaxError error = assertThrows(Parser.SyntaxError.class, () -> {
+            parser.begin(line);
+            while (parser.hasNext()) {
+                parser.next();
+            }
+        });
+        assertEquals("syntax error near unexpected token `" + token + "'", error.getMessage());
+    }
+}
@@ -0,0 +1,45 @@
+package shell;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SubshellTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void backgroundBuiltinsLeaveTheSessionAlone() throws Exception {
+        Path script = directory.resolve("script.sh");
+        Files.writeString(script, "cd /tmp &\nwait\npwd\nexport X=1 &\nwait\necho \"[$X]\"\nexit 3 &\nwait\necho still running\n");
+        assertEquals(directory.toRealPath() + "\n[]\nstill running\n", runShell(script));
+    }
+
+    @Test
+    void pipelineStagesLeaveTheSessionAlone() throws Exception {
+        Path script = directory.resolve("script.sh");
+        Files.writeString(script, "cd /tmp | cat\npwd\n");
+        assertEquals(directory.toRealPath() + "\n", runShell(script));
+    }
+
+    /**
+     * Run a script through the shell in a child JVM started in the temporary directory
+     */
+    private String runShell(Path script) throws Exception {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        ProcessBuilder pb = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                "shell.Main", script.toString());
+        pb.directory(directory.toFile());
+        pb.redirectInput(ProcessBuilder.Redirect.from(Path.of("/dev/null").toFile()));
+        pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+        Process process = pb.start();
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        process.waitFor();
+        return output;
+    }
+}